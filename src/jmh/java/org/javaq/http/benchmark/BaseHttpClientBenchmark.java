@@ -0,0 +1,101 @@
+package org.javaq.http.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.http.client.methods.HttpGet;
+import org.javaq.http.HttpClient;
+import org.javaq.http.RequestEntity;
+import org.javaq.http.core.SSLContextFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * BaseHttpClient请求路径的基准测试，服务端为本地回环的http/https服务
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BaseHttpClientBenchmark {
+
+    private static final String JSON = "{\"id\":10001,\"name\":\"benchmark\",\"tags\":[\"a\",\"b\",\"c\"],\"amount\":99.5}";
+
+    private static final String XML = "<request><id>10001</id><name>benchmark</name><amount>99.5</amount></request>";
+
+    @Param({"http", "https"})
+    public String scheme;
+
+    @Param({"1024"})
+    public int responseSize;
+
+    private LoopbackServer server;
+
+    private HttpClient httpClient;
+
+    private String url;
+
+    private RequestEntity formRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] responseBody = LoopbackServer.fixedBody(responseSize);
+        server = "https".equals(scheme) ? LoopbackServer.https(responseBody) : LoopbackServer.http(responseBody);
+        server.start();
+        url = server.url("/benchmark");
+
+        httpClient = new HttpClient();
+        // 连接池不小于基准线程数，测得的是请求路径本身而不是等待连接的时间
+        httpClient.setMaxTotal(BenchmarkRunner.MAX_THREADS);
+        httpClient.setMaxPerRoute(BenchmarkRunner.MAX_THREADS);
+        if ("https".equals(scheme)) {
+            File trustedCertsDir = LoopbackServer.exportTrustedCerts();
+            SSLContextFactory sslContextFactory = new SSLContextFactory();
+            sslContextFactory.setTrustedCertsPath(trustedCertsDir.getAbsolutePath());
+            sslContextFactory.setTrustedStorePassword("changeit");
+            sslContextFactory.afterPropertiesSet();
+            httpClient.setSslContextFactory(sslContextFactory);
+        }
+        httpClient.afterPropertiesSet();
+
+        formRequest = RequestEntity.Builder.aRequestEntity()
+                .withUrl(url)
+                .withParams(ImmutableMap.of("id", "10001", "name", "benchmark", "amount", "99.5"))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        httpClient.destroy();
+        server.stop();
+    }
+
+    @Benchmark
+    public String execute() throws IOException {
+        return httpClient.execute(new HttpGet(url));
+    }
+
+    @Benchmark
+    public String postJson() throws IOException {
+        return httpClient.postJson(url, JSON);
+    }
+
+    @Benchmark
+    public String postXml() throws IOException {
+        return httpClient.postXml(url, XML, -1, -1, "UTF-8");
+    }
+
+    @Benchmark
+    public String sendFormRequestByPost() throws IOException {
+        return httpClient.sendFormRequestByPost(formRequest);
+    }
+}
@@ -0,0 +1,46 @@
+package org.javaq.http.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 依次以1、8、64个线程运行基准测试，统计吞吐量、平均/分位延迟以及GC分配速率
+ */
+public final class BenchmarkRunner {
+
+    static final int MAX_THREADS = 64;
+
+    private static final int[] THREADS = {1, 8, MAX_THREADS};
+
+    private static final String RESULT_DIR = "build/reports/jmh";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BaseHttpClientBenchmark.class.getSimpleName();
+        new File(RESULT_DIR).mkdirs();
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .mode(Mode.Throughput)
+                    .mode(Mode.AverageTime)
+                    .mode(Mode.SampleTime)
+                    .timeUnit(TimeUnit.MICROSECONDS)
+                    .addProfiler(GCProfiler.class)
+                    .result(RESULT_DIR + "/result-" + threads + "t.json")
+                    .resultFormat(ResultFormatType.JSON)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
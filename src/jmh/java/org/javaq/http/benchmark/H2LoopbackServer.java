@@ -0,0 +1,128 @@
+package org.javaq.http.benchmark;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.NoopEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.http2.ssl.H2ServerTlsStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.reactor.IOSessionListener;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于HttpCore 5的本地回环服务，同时支持HTTP/1.1和HTTP/2（https通过ALPN，http通过h2c），统计建立的连接数
+ */
+public class H2LoopbackServer {
+
+    private final HttpAsyncServer server;
+
+    private final String scheme;
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private int port;
+
+    private H2LoopbackServer(String scheme, final byte[] responseBody) throws Exception {
+        this.scheme = scheme;
+        H2ServerBootstrap bootstrap = H2ServerBootstrap.bootstrap()
+                .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                .setIOReactorConfig(IOReactorConfig.custom().setTcpNoDelay(true).build())
+                .setIOSessionListener(new ConnectionCounter())
+                .register("*", new AsyncServerRequestHandler<Message<HttpRequest, Void>>() {
+                    @Override
+                    public AsyncRequestConsumer<Message<HttpRequest, Void>> prepare(HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+                        return new BasicRequestConsumer<>(entityDetails != null ? new NoopEntityConsumer() : null);
+                    }
+
+                    @Override
+                    public void handle(Message<HttpRequest, Void> request, ResponseTrigger responseTrigger, HttpContext context) throws HttpException, IOException {
+                        responseTrigger.submitResponse(AsyncResponseBuilder.create(200)
+                                .setEntity(responseBody, ContentType.TEXT_PLAIN.withCharset("UTF-8"))
+                                .build(), context);
+                    }
+                });
+        if ("https".equals(scheme)) {
+            bootstrap.setTlsStrategy(new H2ServerTlsStrategy(LoopbackServer.createServerSSLContext()));
+        }
+        this.server = bootstrap.create();
+    }
+
+    public static H2LoopbackServer http(byte[] responseBody) throws Exception {
+        return new H2LoopbackServer("http", responseBody);
+    }
+
+    public static H2LoopbackServer https(byte[] responseBody) throws Exception {
+        return new H2LoopbackServer("https", responseBody);
+    }
+
+    public void start() throws Exception {
+        server.start();
+        ListenerEndpoint endpoint = server.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                "https".equals(scheme) ? URIScheme.HTTPS : URIScheme.HTTP).get();
+        port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+    }
+
+    public void stop() {
+        server.close(CloseMode.IMMEDIATE);
+    }
+
+    public String url(String path) {
+        return scheme + "://127.0.0.1:" + port + path;
+    }
+
+    /**
+     * 返回上次调用以来服务端接受的连接数并清零
+     */
+    public int takeConnectionCount() {
+        return connectionCount.getAndSet(0);
+    }
+
+    private class ConnectionCounter implements IOSessionListener {
+        @Override
+        public void connected(IOSession session) {
+            connectionCount.incrementAndGet();
+        }
+
+        @Override
+        public void startTls(IOSession session) {
+        }
+
+        @Override
+        public void inputReady(IOSession session) {
+        }
+
+        @Override
+        public void outputReady(IOSession session) {
+        }
+
+        @Override
+        public void timeout(IOSession session) {
+        }
+
+        @Override
+        public void exception(IOSession session, Exception ex) {
+        }
+
+        @Override
+        public void disconnected(IOSession session) {
+        }
+    }
+}
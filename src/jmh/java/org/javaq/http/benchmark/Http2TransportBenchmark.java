@@ -0,0 +1,90 @@
+package org.javaq.http.benchmark;
+
+import org.apache.http.client.methods.HttpGet;
+import org.javaq.http.HttpClient;
+import org.javaq.http.core.SSLContextFactory;
+import org.javaq.http.core.h2.Transport;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+
+/**
+ * HTTP/1.1与HTTP/2传输对比：同一服务端，并发线程数由BenchmarkRunner控制，
+ * 分位延迟见SampleTime结果，每轮迭代服务端新接受的连接数见吞吐量和平均耗时结果中的辅助计数器connections
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class Http2TransportBenchmark {
+
+    @Param({"http1", "http2"})
+    public String transport;
+
+    @Param({"http", "https"})
+    public String scheme;
+
+    @Param({"1024"})
+    public int responseSize;
+
+    private H2LoopbackServer server;
+
+    private HttpClient httpClient;
+
+    private String url;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] responseBody = LoopbackServer.fixedBody(responseSize);
+        server = "https".equals(scheme) ? H2LoopbackServer.https(responseBody) : H2LoopbackServer.http(responseBody);
+        server.start();
+        url = server.url("/benchmark");
+
+        httpClient = new HttpClient();
+        httpClient.setTransport(Transport.of(transport));
+        if ("https".equals(scheme)) {
+            SSLContextFactory sslContextFactory = new SSLContextFactory();
+            sslContextFactory.setTrustedCertsPath(LoopbackServer.exportTrustedCerts().getAbsolutePath());
+            sslContextFactory.setTrustedStorePassword("changeit");
+            sslContextFactory.afterPropertiesSet();
+            httpClient.setSslContextFactory(sslContextFactory);
+        }
+        httpClient.afterPropertiesSet();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        httpClient.destroy();
+        server.stop();
+    }
+
+    @Benchmark
+    public String execute(Connections connections) throws IOException {
+        return httpClient.execute(new HttpGet(url));
+    }
+
+    /**
+     * 迭代结束时先执行的线程取走本轮全部连接数，其余线程计0，各线程合计即为本轮新建的连接数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Connections {
+
+        public int connections;
+
+        @TearDown(Level.Iteration)
+        public void collect(Http2TransportBenchmark benchmark) {
+            connections = benchmark.server.takeConnectionCount();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.javaq.http.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.apache.commons.io.IOUtils;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 基于JDK HttpServer的本地回环服务，响应固定报文，用于基准测试
+ */
+public class LoopbackServer {
+
+    public static final String KEYSTORE_PATH = "ssl/kamd.keystore";
+
+    public static final String KEYSTORE_PASSWORD = "123456";
+
+    static {
+        // 默认未开启TCP_NODELAY，响应头和报文分两次写出会触发Nagle与延迟ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final String scheme;
+
+    private LoopbackServer(HttpServer server, String scheme, byte[] responseBody) {
+        this.server = server;
+        this.scheme = scheme;
+        this.executor = Executors.newCachedThreadPool();
+        this.server.createContext("/", new FixedResponseHandler(responseBody));
+        this.server.setExecutor(executor);
+    }
+
+    public static LoopbackServer http(byte[] responseBody) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        return new LoopbackServer(server, "http", responseBody);
+    }
+
+    public static LoopbackServer https(byte[] responseBody) throws Exception {
+        HttpsServer server = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setHttpsConfigurator(new HttpsConfigurator(createServerSSLContext()));
+        return new LoopbackServer(server, "https", responseBody);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String url(String path) {
+        return scheme + "://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * 将keystore中的证书导出到临时目录，作为客户端SSLContextFactory的trustedCertsPath
+     */
+    public static File exportTrustedCerts() throws Exception {
+        KeyStore keyStore = loadKeyStore();
+        File dir = Files.createTempDirectory("httpclient-bench-certs").toFile();
+        dir.deleteOnExit();
+        for (String alias : Collections.list(keyStore.aliases())) {
+            Certificate certificate = keyStore.getCertificate(alias);
+            File certFile = new File(dir, alias + ".cer");
+            certFile.deleteOnExit();
+            OutputStream out = new FileOutputStream(certFile);
+            try {
+                out.write(certificate.getEncoded());
+            } finally {
+                IOUtils.closeQuietly(out);
+            }
+        }
+        return dir;
+    }
+
+    static SSLContext createServerSSLContext() throws Exception {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(loadKeyStore(), KEYSTORE_PASSWORD.toCharArray());
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), null, null);
+        return sslContext;
+    }
+
+    private static KeyStore loadKeyStore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = new FileInputStream(KEYSTORE_PATH);
+        try {
+            keyStore.load(in, KEYSTORE_PASSWORD.toCharArray());
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        return keyStore;
+    }
+
+    public static byte[] fixedBody(int size) {
+        StringBuilder builder = new StringBuilder(size);
+        while (builder.length() < size) {
+            builder.append("0123456789abcdef");
+        }
+        builder.setLength(size);
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class FixedResponseHandler implements HttpHandler {
+        private final byte[] responseBody;
+
+        FixedResponseHandler(byte[] responseBody) {
+            this.responseBody = responseBody;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                InputStream in = exchange.getRequestBody();
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    // drain request body
+                }
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+                exchange.sendResponseHeaders(200, responseBody.length);
+                exchange.getResponseBody().write(responseBody);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
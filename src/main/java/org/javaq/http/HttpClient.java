@@ -3,18 +3,26 @@ package org.javaq.http;
 import com.google.common.collect.ImmutableMap;
 import org.apache.http.Consts;
 import org.apache.http.Header;
+import org.apache.http.HttpHost;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicNameValuePair;
 import org.javaq.http.common.logger.Logger;
 import org.javaq.http.common.logger.LoggerFactory;
 import org.javaq.http.core.BaseHttpClient;
-import org.springframework.scheduling.annotation.Async;
+import org.javaq.http.core.BatchExecutor;
+import org.javaq.http.core.BatchResult;
+import org.javaq.http.core.compress.Compression;
+import org.javaq.http.core.pool.Routes;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -27,13 +35,12 @@ public class HttpClient extends BaseHttpClient {
      *
      * @param url the request url
      */
-    @Async
     public void sendGetRequestByAsync(final String url) {
-        try {
-            super.get(url);
-        } catch (IOException e) {
-            LOGGER.error("Fail to send get request", e);
-        }
+        super.getAsync(url).whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                LOGGER.error("Fail to send get request", throwable);
+            }
+        });
     }
 
     public String sendGetRequestAsString(String url) {
@@ -67,7 +74,12 @@ public class HttpClient extends BaseHttpClient {
     }
 
     public String sendJsonRequestByPost(RequestEntity requestEntity) throws IOException {
-        return super.postJson(requestEntity.getUrl(), requestEntity.getJsonString(), requestEntity.getSocketTimeout(), requestEntity.getConnectTimeout(), requestEntity.getCharset());
+        StringEntity entity = new StringEntity(requestEntity.getJsonString(), requestEntity.getCharset());
+        entity.setContentEncoding(ContentType.APPLICATION_JSON.getCharset().name());
+        entity.setContentType(ContentType.APPLICATION_JSON.getMimeType());
+        HttpPost httpPost = new HttpPost(requestEntity.getUrl());
+        httpPost.setEntity(compress(entity, compressionOf(requestEntity)));
+        return super.execute(httpPost, requestEntity.getSocketTimeout(), requestEntity.getConnectTimeout());
     }
 
     public String sendXmlRequestByPost(RequestEntity requestEntity) throws IOException {
@@ -75,7 +87,7 @@ public class HttpClient extends BaseHttpClient {
         entity.setContentEncoding(ContentType.APPLICATION_XML.getCharset().name());
         entity.setContentType(ContentType.APPLICATION_XML.getMimeType());
         HttpPost httpPost = new HttpPost(requestEntity.getUrl());
-        httpPost.setEntity(entity);
+        httpPost.setEntity(compress(entity, compressionOf(requestEntity)));
         if (!requestEntity.getHeaders().isEmpty()) {
             for (Header header : requestEntity.getHeaders()) {
                 httpPost.addHeader(header);
@@ -103,6 +115,55 @@ public class HttpClient extends BaseHttpClient {
         }
     }
 
+    /**
+     * 并发执行一批请求，最多maxConcurrency个线程（开启虚拟线程时使用虚拟线程），同一路由的并发数不超过连接池的单路由上限；
+     * 结果与输入顺序一一对应，单个请求失败不影响其它请求。
+     * 按请求内容选择发送方式：jsonString、xmlString、params依次对应json、xml、表单post，均未设置时发送get请求
+     */
+    public List<BatchResult<String>> executeAll(List<RequestEntity> requestEntities, int maxConcurrency) throws IOException {
+        return new BatchExecutor<>(requestEntities, new BatchExecutor.RouteResolver<RequestEntity>() {
+            @Override
+            public HttpRoute routeOf(RequestEntity requestEntity) {
+                HttpHost host = URIUtils.extractHost(URI.create(requestEntity.getUrl()));
+                if (host == null) {
+                    throw new IllegalArgumentException("Invalid request url: " + requestEntity.getUrl());
+                }
+                return Routes.of(host);
+            }
+
+            @Override
+            public int maxPerRoute(HttpRoute route) {
+                return getMaxPerRoute(route);
+            }
+        }, new BatchExecutor.Task<RequestEntity, String>() {
+            @Override
+            public String execute(RequestEntity requestEntity) throws IOException {
+                return send(requestEntity);
+            }
+        }, getVirtualThreadFactory()).execute(maxConcurrency);
+    }
+
+    private String send(RequestEntity requestEntity) throws IOException {
+        if (requestEntity.getJsonString() != null) {
+            return sendJsonRequestByPost(requestEntity);
+        }
+        if (requestEntity.getXmlString() != null) {
+            return sendXmlRequestByPost(requestEntity);
+        }
+        if (requestEntity.getParams() != null) {
+            return sendFormRequestByPost(requestEntity);
+        }
+        HttpGet httpGet = new HttpGet(requestEntity.getUrl());
+        for (Header header : requestEntity.getHeaders()) {
+            httpGet.addHeader(header);
+        }
+        return super.execute(httpGet, requestEntity.getSocketTimeout(), requestEntity.getConnectTimeout(), requestEntity.getCharset());
+    }
+
+    private Compression compressionOf(RequestEntity requestEntity) {
+        return requestEntity.getCompression() != null ? requestEntity.getCompression() : getRequestCompression();
+    }
+
     private String sendPostRequestAsString(String url, ImmutableMap<String, String> params, boolean abort) {
         HttpPost httpPost = new HttpPost(url);
         List<NameValuePair> nameValuePairs = new ArrayList<>();
@@ -145,7 +206,7 @@ public class HttpClient extends BaseHttpClient {
         StringEntity entity = new StringEntity(json, Consts.UTF_8);
         entity.setContentEncoding(ContentType.APPLICATION_JSON.getCharset().name());
         entity.setContentType(ContentType.APPLICATION_JSON.getMimeType());
-        httpPost.setEntity(entity);
+        httpPost.setEntity(compress(entity, getRequestCompression()));
         return super.execute(httpPost);
     }
 
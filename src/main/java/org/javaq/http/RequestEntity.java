@@ -3,6 +3,7 @@ package org.javaq.http;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.http.Header;
+import org.javaq.http.core.compress.Compression;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,6 +19,7 @@ public class RequestEntity {
     private boolean canAbort = false;
     private String charset = "UTF-8";
     private List<Header> headers = new ArrayList<>();
+    private Compression compression;
 
     public String getUrl() {
         return url;
@@ -55,6 +57,13 @@ public class RequestEntity {
         return headers;
     }
 
+    /**
+     * 为null时使用HttpClient的requestCompression配置
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
     public static final class Builder {
         private String url;
         private ImmutableMap<String, String> params;
@@ -65,6 +74,7 @@ public class RequestEntity {
         private String jsonString;
         private String xmlString;
         private List<Header> headers = new ArrayList<>();
+        private Compression compression;
 
         private Builder() {
         }
@@ -118,6 +128,11 @@ public class RequestEntity {
             return this;
         }
 
+        public Builder withCompression(Compression compression) {
+            this.compression = compression;
+            return this;
+        }
+
         public RequestEntity build() {
             RequestEntity requestEntity = new RequestEntity();
             requestEntity.canAbort = this.canAbort;
@@ -129,6 +144,7 @@ public class RequestEntity {
             requestEntity.jsonString = this.jsonString;
             requestEntity.xmlString = this.xmlString;
             requestEntity.headers = this.headers;
+            requestEntity.compression = this.compression;
             return requestEntity;
         }
     }
@@ -145,6 +161,7 @@ public class RequestEntity {
                 ", canAbort=" + canAbort +
                 ", charset='" + charset + '\'' +
                 ", headers=" + headers +
+                ", compression=" + compression +
                 '}';
     }
 }
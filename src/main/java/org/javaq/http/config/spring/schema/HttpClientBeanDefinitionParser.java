@@ -2,14 +2,33 @@ package org.javaq.http.config.spring.schema;
 
 import org.javaq.http.HttpClient;
 import org.javaq.http.core.SSLContextFactory;
+import org.javaq.http.core.breaker.CircuitBreakerRegistry;
+import org.javaq.http.core.compress.Compression;
+import org.javaq.http.core.dns.CachingDnsResolver;
+import org.javaq.http.core.h2.Transport;
+import org.javaq.http.core.hedge.HedgingPolicy;
+import org.javaq.http.core.lb.LoadBalancedService;
+import org.javaq.http.core.lb.LoadBalancingStrategy;
+import org.javaq.http.core.limit.AdaptiveConcurrencyLimiter;
+import org.javaq.http.core.limit.ConcurrencyLimitAlgorithm;
+import org.javaq.http.core.pool.DownstreamPool;
+import org.javaq.http.core.ratelimit.RateLimitMode;
+import org.javaq.http.core.ratelimit.RateLimiter;
+import org.javaq.http.core.retry.ExponentialBackoffRetryPolicy;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.parsing.BeanComponentDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.beans.factory.xml.AbstractSingleBeanDefinitionParser;
 import org.springframework.beans.factory.xml.ParserContext;
+import org.springframework.util.xml.DomUtils;
 import org.w3c.dom.Element;
 
+import java.util.List;
+
 
 public class HttpClientBeanDefinitionParser extends AbstractSingleBeanDefinitionParser {
 
@@ -27,6 +46,173 @@ public class HttpClientBeanDefinitionParser extends AbstractSingleBeanDefinition
     protected void doParse(Element element, ParserContext parserContext, BeanDefinitionBuilder builder) {
         RuntimeBeanReference sslContextFactoryReference = buildSSLContextFactoryReference(element, parserContext);
         builder.addPropertyValue("sslContextFactory", sslContextFactoryReference);
+        addPropertyValue(element, builder, "cacheEnabled");
+        addPropertyValue(element, builder, "cacheMaxBytes");
+        addPropertyValue(element, builder, "cacheMaxObjectSize");
+        addPropertyValue(element, builder, "coalescingEnabled");
+        addPropertyValue(element, builder, "maxTotal");
+        addPropertyValue(element, builder, "maxPerRoute");
+        addPropertyValue(element, builder, "jmxEnabled");
+        addPropertyValue(element, builder, "evictionEnabled");
+        addPropertyValue(element, builder, "evictionInterval");
+        addPropertyValue(element, builder, "maxIdleTime");
+        addPropertyValue(element, builder, "validateAfterInactivity");
+        if (element.hasAttribute("requestCompression")) {
+            builder.addPropertyValue("requestCompression", Compression.of(element.getAttribute("requestCompression")));
+        }
+        addPropertyValue(element, builder, "requestCompressionThreshold");
+        addPropertyValue(element, builder, "virtualThreadsEnabled");
+        if (element.hasAttribute("transport")) {
+            builder.addPropertyValue("transport", Transport.of(element.getAttribute("transport")));
+        }
+        parseRoutes(element, builder);
+        parseDownstreamPools(element, builder);
+        parseRetryPolicy(element, builder);
+        parseCircuitBreaker(element, builder);
+        parseHedging(element, builder);
+        parseServices(element, builder);
+        parseDnsCache(element, builder);
+        parseRateLimits(element, builder);
+        parseConcurrencyLimit(element, builder);
+    }
+
+    private void parseRoutes(Element element, BeanDefinitionBuilder builder) {
+        List<Element> routeElements = DomUtils.getChildElementsByTagName(element, "route");
+        if (routeElements.isEmpty()) {
+            return;
+        }
+        ManagedMap<String, String> routeMaxPerRoute = new ManagedMap<>();
+        for (Element routeElement : routeElements) {
+            routeMaxPerRoute.put(routeElement.getAttribute("host"), routeElement.getAttribute("maxPerRoute"));
+        }
+        builder.addPropertyValue("routeMaxPerRoute", routeMaxPerRoute);
+    }
+
+    private void parseDownstreamPools(Element element, BeanDefinitionBuilder builder) {
+        List<Element> poolElements = DomUtils.getChildElementsByTagName(element, "pool");
+        if (poolElements.isEmpty()) {
+            return;
+        }
+        ManagedList<BeanDefinition> downstreamPools = new ManagedList<>();
+        for (Element poolElement : poolElements) {
+            RootBeanDefinition downstreamPool = new RootBeanDefinition(DownstreamPool.class);
+            downstreamPool.getPropertyValues().add("name", getAttributeValue(poolElement, "name"));
+            downstreamPool.getPropertyValues().add("hosts", getAttributeValue(poolElement, "hosts"));
+            downstreamPool.getPropertyValues().add("maxTotal", getAttributeValue(poolElement, "maxTotal"));
+            downstreamPool.getPropertyValues().add("maxPerRoute", getAttributeValue(poolElement, "maxPerRoute"));
+            downstreamPools.add(downstreamPool);
+        }
+        builder.addPropertyValue("downstreamPools", downstreamPools);
+    }
+
+    private void parseRetryPolicy(Element element, BeanDefinitionBuilder builder) {
+        parseChildBean(element, builder, "retryPolicy", "retryPolicy", ExponentialBackoffRetryPolicy.class,
+                "maxRetries", "initialDelay", "maxDelay", "retryStatuses", "retryNonIdempotent", "budgetRatio", "budgetCapacity");
+    }
+
+    private void parseCircuitBreaker(Element element, BeanDefinitionBuilder builder) {
+        parseChildBean(element, builder, "circuitBreaker", "circuitBreakerRegistry", CircuitBreakerRegistry.class,
+                "failureRateThreshold", "slowCallRateThreshold", "slowCallDuration", "windowSize", "minimumCalls",
+                "waitDurationInOpen", "permittedCallsInHalfOpen");
+    }
+
+    private void parseHedging(Element element, BeanDefinitionBuilder builder) {
+        parseChildBean(element, builder, "hedging", "hedgingPolicy", HedgingPolicy.class,
+                "delay", "percentile", "maxHedgeRatio", "budgetCapacity");
+    }
+
+    private void parseServices(Element element, BeanDefinitionBuilder builder) {
+        List<Element> serviceElements = DomUtils.getChildElementsByTagName(element, "service");
+        if (serviceElements.isEmpty()) {
+            return;
+        }
+        ManagedList<BeanDefinition> services = new ManagedList<>();
+        for (Element serviceElement : serviceElements) {
+            RootBeanDefinition service = new RootBeanDefinition(LoadBalancedService.class);
+            service.getPropertyValues().add("name", getAttributeValue(serviceElement, "name"));
+            service.getPropertyValues().add("endpoints", getAttributeValue(serviceElement, "endpoints"));
+            if (serviceElement.hasAttribute("strategy")) {
+                service.getPropertyValues().add("strategy", LoadBalancingStrategy.of(serviceElement.getAttribute("strategy")));
+            }
+            for (String attributeName : new String[]{"decayTime", "failurePenalty"}) {
+                String value = getAttributeValue(serviceElement, attributeName);
+                if (value != null) {
+                    service.getPropertyValues().add(attributeName, value);
+                }
+            }
+            services.add(service);
+        }
+        builder.addPropertyValue("services", services);
+    }
+
+    private void parseDnsCache(Element element, BeanDefinitionBuilder builder) {
+        parseChildBean(element, builder, "dnsCache", "dnsResolver", CachingDnsResolver.class, "ttl", "refreshAfter", "refreshThreads");
+    }
+
+    private void parseRateLimits(Element element, BeanDefinitionBuilder builder) {
+        List<Element> rateLimitElements = DomUtils.getChildElementsByTagName(element, "rateLimit");
+        if (rateLimitElements.isEmpty()) {
+            return;
+        }
+        ManagedList<BeanDefinition> rateLimiters = new ManagedList<>();
+        for (Element rateLimitElement : rateLimitElements) {
+            RootBeanDefinition rateLimiter = new RootBeanDefinition(RateLimiter.class);
+            rateLimiter.getPropertyValues().add("route", getAttributeValue(rateLimitElement, "route"));
+            rateLimiter.getPropertyValues().add("permitsPerSecond", getAttributeValue(rateLimitElement, "permitsPerSecond"));
+            if (rateLimitElement.hasAttribute("mode")) {
+                rateLimiter.getPropertyValues().add("mode", RateLimitMode.of(rateLimitElement.getAttribute("mode")));
+            }
+            for (String attributeName : new String[]{"burst", "maxWait"}) {
+                String value = getAttributeValue(rateLimitElement, attributeName);
+                if (value != null) {
+                    rateLimiter.getPropertyValues().add(attributeName, value);
+                }
+            }
+            rateLimiters.add(rateLimiter);
+        }
+        builder.addPropertyValue("rateLimiters", rateLimiters);
+    }
+
+    private void parseConcurrencyLimit(Element element, BeanDefinitionBuilder builder) {
+        parseChildBean(element, builder, "concurrencyLimit", "concurrencyLimiter", AdaptiveConcurrencyLimiter.class,
+                "initialLimit", "minLimit", "maxLimit", "backoffRatio", "windowSize", "rttTolerance", "smoothing", "timeout");
+        Element limitElement = DomUtils.getChildElementByTagName(element, "concurrencyLimit");
+        Object limiter = builder.getRawBeanDefinition().getPropertyValues().get("concurrencyLimiter");
+        if (limiter instanceof BeanDefinition && limitElement.hasAttribute("algorithm")) {
+            ((BeanDefinition) limiter).getPropertyValues().add("algorithm",
+                    ConcurrencyLimitAlgorithm.of(limitElement.getAttribute("algorithm")));
+        }
+    }
+
+    /**
+     * 子元素指定ref时引用该bean，否则以子元素的属性创建beanClass的内部bean
+     */
+    private void parseChildBean(Element element, BeanDefinitionBuilder builder, String tagName, String propertyName,
+                                Class<?> beanClass, String... attributeNames) {
+        Element childElement = DomUtils.getChildElementByTagName(element, tagName);
+        if (childElement == null) {
+            return;
+        }
+        String ref = getAttributeValue(childElement, "ref");
+        if (ref != null) {
+            builder.addPropertyValue(propertyName, new RuntimeBeanReference(ref));
+            return;
+        }
+        RootBeanDefinition bean = new RootBeanDefinition(beanClass);
+        for (String attributeName : attributeNames) {
+            String value = getAttributeValue(childElement, attributeName);
+            if (value != null) {
+                bean.getPropertyValues().add(attributeName, value);
+            }
+        }
+        builder.addPropertyValue(propertyName, bean);
+    }
+
+    private void addPropertyValue(Element element, BeanDefinitionBuilder builder, String attributeName) {
+        String value = getAttributeValue(element, attributeName);
+        if (value != null) {
+            builder.addPropertyValue(attributeName, value);
+        }
     }
 
     private RuntimeBeanReference buildSSLContextFactoryReference(Element element, ParserContext parserContext) {
@@ -34,7 +220,12 @@ public class HttpClientBeanDefinitionParser extends AbstractSingleBeanDefinition
         String privateKeyPassword = getAttributeValue(element, "privateKeyPassword");
         String trustedCertsPath = getAttributeValue(element, "trustedCertsPath");
         String trustedStorePassword = getAttributeValue(element, "trustedStorePassword");
+        String trustedStoreCachePath = getAttributeValue(element, "trustedStoreCachePath");
         String trustedHosts = getAttributeValue(element, "trustedHosts");
+        String sslSessionCacheSize = getAttributeValue(element, "sslSessionCacheSize");
+        String sslSessionTimeout = getAttributeValue(element, "sslSessionTimeout");
+        String sslSessionTicketsEnabled = getAttributeValue(element, "sslSessionTicketsEnabled");
+        String sslReloadEnabled = getAttributeValue(element, "sslReloadEnabled");
 
         RootBeanDefinition sslContextFactory = new RootBeanDefinition(SSLContextFactory.class);
         parserContext.getRegistry().registerBeanDefinition("sslContextFactory", sslContextFactory);
@@ -42,7 +233,12 @@ public class HttpClientBeanDefinitionParser extends AbstractSingleBeanDefinition
         sslContextFactory.getPropertyValues().add("privateKeyPassword", privateKeyPassword);
         sslContextFactory.getPropertyValues().add("trustedCertsPath", trustedCertsPath);
         sslContextFactory.getPropertyValues().add("trustedStorePassword", trustedStorePassword);
+        sslContextFactory.getPropertyValues().add("trustedStoreCachePath", trustedStoreCachePath);
         sslContextFactory.getPropertyValues().add("trustedHosts", trustedHosts);
+        sslContextFactory.getPropertyValues().add("sessionCacheSize", sslSessionCacheSize);
+        sslContextFactory.getPropertyValues().add("sessionTimeout", sslSessionTimeout);
+        sslContextFactory.getPropertyValues().add("sessionTicketsEnabled", sslSessionTicketsEnabled);
+        sslContextFactory.getPropertyValues().add("reloadEnabled", sslReloadEnabled);
 
         parserContext.registerComponent(new BeanComponentDefinition(sslContextFactory, "sslContextFactory"));
 
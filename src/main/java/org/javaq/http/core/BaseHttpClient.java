@@ -1,35 +1,124 @@
 package org.javaq.http.core;
 
 import org.apache.http.Consts;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.cache.HttpCacheContext;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.*;
+import org.apache.http.impl.client.cache.CacheConfig;
+import org.apache.http.impl.client.cache.CachingHttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.ConnPoolControl;
 import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.EntityUtils;
+import org.javaq.http.common.logger.Logger;
+import org.javaq.http.common.logger.LoggerFactory;
+import org.javaq.http.core.breaker.CircuitBreaker;
+import org.javaq.http.core.breaker.CircuitBreakerOpenException;
+import org.javaq.http.core.breaker.CircuitBreakerRegistry;
+import org.javaq.http.core.cache.HttpCacheMetrics;
+import org.javaq.http.core.cache.WeightedHttpCacheStorage;
+import org.javaq.http.core.compress.CompressingEntity;
+import org.javaq.http.core.compress.Compression;
+import org.javaq.http.core.dns.CachingDnsResolver;
+import org.javaq.http.core.h2.Http2NotSupportedException;
+import org.javaq.http.core.h2.Http2Transport;
+import org.javaq.http.core.hedge.HedgingPolicy;
+import org.javaq.http.core.lb.LoadBalancedService;
+import org.javaq.http.core.limit.AdaptiveConcurrencyLimiter;
+import org.javaq.http.core.limit.ConcurrencyLimit;
+import org.javaq.http.core.limit.ConcurrencyLimitExceededException;
+import org.javaq.http.core.lb.LoadBalancerMetrics;
+import org.javaq.http.core.lb.ServiceEndpoint;
+import org.javaq.http.core.h2.Transport;
+import org.javaq.http.core.pool.ConnectionPoolMetrics;
+import org.javaq.http.core.pool.DownstreamPool;
+import org.javaq.http.core.pool.IdleConnectionEvictor;
+import org.javaq.http.core.pool.InstrumentedConnectionManager;
+import org.javaq.http.core.pool.Routes;
+import org.javaq.http.core.ratelimit.RateLimitExceededException;
+import org.javaq.http.core.ratelimit.RateLimiter;
+import org.javaq.http.core.ratelimit.RateLimiterMetrics;
+import org.javaq.http.core.retry.RetryPolicy;
+import org.javaq.http.core.ssl.MonitoredSSLConnectionSocketFactory;
+import org.javaq.http.core.ssl.MonitoredSSLIOSessionStrategy;
+import org.javaq.http.core.ssl.TlsHandshakeMetrics;
+import org.javaq.http.core.timing.RequestTimingListener;
+import org.javaq.http.core.timing.RequestTimings;
+import org.javaq.http.core.timing.TimingConnectionSocketFactory;
+import org.javaq.http.core.timing.TimingDnsResolver;
+import org.javaq.http.core.timing.TimingHttpRequestExecutor;
+import org.javaq.http.core.timing.TimingSSLConnectionSocketFactory;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
+import javax.management.JMException;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /**
  * based on Apache HttpClient4.4
  */
 @ThreadSafe
-public abstract class BaseHttpClient implements InitializingBean {
+public abstract class BaseHttpClient implements InitializingBean, DisposableBean, BeanNameAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BaseHttpClient.class);
+
+    private static final String JMX_DOMAIN = "org.javaq.http";
 
     private static final int DEFAULT_MAX_PER_ROUTE = 15;
 
@@ -37,16 +126,56 @@ public abstract class BaseHttpClient implements InitializingBean {
 
     private static final int DEFAULT_TIME_TO_LIVE = 3000; //毫秒
 
+    private static final long DEFAULT_EVICTION_INTERVAL = 5000; //毫秒
+
+    private static final long DEFAULT_MAX_IDLE_TIME = 30000; //毫秒
+
+    private static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 1000; //毫秒
+
+    private static final long DEFAULT_COMPRESSION_THRESHOLD = 8192;
+
+    private static final long DEFAULT_CACHE_MAX_BYTES = 32 * 1024 * 1024;
+
+    private static final long DEFAULT_CACHE_MAX_OBJECT_SIZE = 1024 * 1024;
+
     private CloseableHttpClient httpClient;
 
+    private String beanName;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private Map<String, CloseableHttpClient> downstreamClients = Collections.emptyMap();
+
+    private Map<String, PoolingHttpClientConnectionManager> downstreamConnectionManagers = Collections.emptyMap();
+
+    private volatile CloseableHttpAsyncClient asyncHttpClient;
+
+    private volatile boolean closed = false;
+
+    private Integer ioThreadCount;
+
     private boolean releaseCon = false;
 
     private Integer maxPerRoute;
 
     private Integer maxTotal;
 
+    private Map<String, Integer> routeMaxPerRoute;
+
+    private List<DownstreamPool> downstreamPools;
+
     private Integer timeToLive;
 
+    private boolean evictionEnabled = false;
+
+    private Long evictionInterval;
+
+    private Long maxIdleTime;
+
+    private Integer validateAfterInactivity;
+
+    private IdleConnectionEvictor idleConnectionEvictor;
+
     private Integer defaultSocketTimeout = 5000;//milliseconds
 
     private Integer defaultConnectTimeout = 5000;//milliseconds
@@ -55,8 +184,66 @@ public abstract class BaseHttpClient implements InitializingBean {
 
     private Integer retryCount = 0;
 
+    private RetryPolicy retryPolicy;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private HedgingPolicy hedgingPolicy;
+
+    private boolean hedgingPolicyStarted;
+
+    private List<LoadBalancedService> services;
+
+    private DnsResolver dnsResolver;
+
+    private boolean dnsResolverStarted;
+
+    private List<RateLimiter> rateLimiters;
+
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private Map<String, RateLimiter> rateLimiterIndex = Collections.emptyMap();
+
+    private Map<String, LoadBalancedService> serviceIndex = Collections.emptyMap();
+
     private SSLContextFactory sslContextFactory;
 
+    private Transport transport = Transport.HTTP1;
+
+    private Http2Transport http2Transport;
+
+    private boolean virtualThreadsEnabled = false;
+
+    private ThreadFactory virtualThreadFactory;
+
+    private ExecutorService virtualThreadExecutor;
+
+    private Compression requestCompression = Compression.NONE;
+
+    private Long requestCompressionThreshold;
+
+    private boolean cacheEnabled = false;
+
+    private Long cacheMaxBytes;
+
+    private Long cacheMaxObjectSize;
+
+    private WeightedHttpCacheStorage cacheStorage;
+
+    private HttpCacheMetrics cacheMetrics;
+
+    private boolean jmxEnabled = true;
+
+    private List<RequestTimingListener> requestTimingListeners;
+
+    private final List<ObjectName> registeredMBeans = new ArrayList<>();
+
+    private final TlsHandshakeMetrics tlsHandshakeMetrics = new TlsHandshakeMetrics();
+
+    private boolean coalescingEnabled = false;
+
+    private final SingleFlight<String> singleFlight = new SingleFlight<>();
+
     public String get(String url) throws IOException {
         return this.get(url, -1, -1);
     }
@@ -66,6 +253,18 @@ public abstract class BaseHttpClient implements InitializingBean {
         return this.execute(httpGet, socketTimeout, connectTimeout);
     }
 
+    public <T> T get(String url, ResponseHandler<? extends T> responseHandler) throws IOException {
+        return this.execute(new HttpGet(url), -1, -1, responseHandler);
+    }
+
+    public void getForStream(String url, StreamConsumer consumer) throws IOException {
+        this.executeForStream(new HttpGet(url), -1, -1, consumer);
+    }
+
+    public void getForChunks(String url, ChunkConsumer consumer) throws IOException {
+        this.executeForChunks(new HttpGet(url), -1, -1, consumer);
+    }
+
     public String postJson(String url, String json) throws IOException {
         return this.postJson(url, json, -1, -1);
     }
@@ -91,22 +290,67 @@ public abstract class BaseHttpClient implements InitializingBean {
         return this.post(url, entity, socketTimeout, connectTimeout, charset);
     }
 
+    public String postJson(String url, BodyWriter writer) throws IOException {
+        return this.postJson(url, writer, -1, -1);
+    }
+
+    /**
+     * 以chunked方式发送由writer写出的json报文，报文不会在内存中完整构造
+     */
+    public String postJson(String url, BodyWriter writer, int socketTimeout, int connectTimeout) throws IOException {
+        return this.post(url, new BodyWriterEntity(writer, ContentType.APPLICATION_JSON), socketTimeout, connectTimeout);
+    }
+
+    public String postJson(String url, InputStream json) throws IOException {
+        return this.postJson(url, json, -1, -1);
+    }
+
+    public String postJson(String url, InputStream json, int socketTimeout, int connectTimeout) throws IOException {
+        return this.post(url, chunkedEntity(json, ContentType.APPLICATION_JSON), socketTimeout, connectTimeout);
+    }
+
+    public String postXml(String url, BodyWriter writer, int socketTimeout, int connectTimeout, String charset) throws IOException {
+        BodyWriterEntity entity = new BodyWriterEntity(writer, ContentType.create(ContentType.APPLICATION_XML.getMimeType(), charset));
+        return this.post(url, entity, socketTimeout, connectTimeout, charset);
+    }
+
+    public String postXml(String url, InputStream xml, int socketTimeout, int connectTimeout, String charset) throws IOException {
+        InputStreamEntity entity = chunkedEntity(xml, ContentType.create(ContentType.APPLICATION_XML.getMimeType(), charset));
+        return this.post(url, entity, socketTimeout, connectTimeout, charset);
+    }
+
     public String post(String url, HttpEntity entity) throws IOException {
         return this.post(url, entity, -1, -1);
     }
 
     public String post(String url, HttpEntity entity, int socketTimeout, int connectTimeout) throws IOException {
         HttpPost method = new HttpPost(url);
-        method.setEntity(entity);
+        method.setEntity(compress(entity, this.requestCompression));
         return this.execute(method, socketTimeout, connectTimeout);
     }
 
     public String post(String url, HttpEntity entity, int socketTimeout, int connectTimeout, String charset) throws IOException {
         HttpPost method = new HttpPost(url);
-        method.setEntity(entity);
+        method.setEntity(compress(entity, this.requestCompression));
         return this.execute(method, socketTimeout, connectTimeout, charset);
     }
 
+    /**
+     * 报文长度未知或不小于压缩阈值时，发送过程中流式压缩报文；已设置压缩编码的实体保持不变
+     */
+    protected HttpEntity compress(HttpEntity entity, Compression compression) {
+        if (entity == null || compression == null || compression == Compression.NONE
+                || entity instanceof CompressingEntity || Compression.isEncoded(entity)) {
+            return entity;
+        }
+        long threshold = this.requestCompressionThreshold != null ? this.requestCompressionThreshold : DEFAULT_COMPRESSION_THRESHOLD;
+        long contentLength = entity.getContentLength();
+        if (contentLength >= 0 && contentLength < threshold) {
+            return entity;
+        }
+        return new CompressingEntity(entity, compression);
+    }
+
     public String execute(HttpRequestBase request) throws IOException {
         return this.execute(request, -1, -1);
     }
@@ -115,62 +359,947 @@ public abstract class BaseHttpClient implements InitializingBean {
         return this.execute(request, socketTimeout, connectTimeout, "UTF-8");
     }
 
-    public String execute(HttpRequestBase request, int socketTimeout, int connectTimeout, String charset) throws IOException {
-        if (socketTimeout <= 0) {
-            socketTimeout = this.defaultSocketTimeout;
+    public String execute(final HttpRequestBase request, final int socketTimeout, final int connectTimeout, final String charset) throws IOException {
+        if (this.coalescingEnabled && isCoalescible(request)) {
+            return singleFlight.execute(coalescingKey(request, charset), coalescingTimeout(socketTimeout, connectTimeout), new SingleFlight.Call<String>() {
+                @Override
+                public String call() throws IOException {
+                    return executeHedged(request, socketTimeout, connectTimeout, charset);
+                }
+            });
         }
-        if (connectTimeout <= 0) {
-            connectTimeout = this.defaultConnectTimeout;
+        return executeHedged(request, socketTimeout, connectTimeout, charset);
+    }
+
+    /**
+     * 配置了hedgingPolicy时，慢请求会由后台线程发出相同的请求副本，取先完成的结果
+     */
+    private String executeHedged(HttpRequestBase request, final int socketTimeout, final int connectTimeout, final String charset) throws IOException {
+        if (this.hedgingPolicy == null) {
+            return this.execute(request, socketTimeout, connectTimeout, new StringResponseHandler(charset));
         }
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setSocketTimeout(socketTimeout)
-                .setConnectTimeout(connectTimeout)
-                .build();
-        request.setConfig(requestConfig);
+        final URI uri = request.getURI();
+        return this.hedgingPolicy.execute(request, new HedgingPolicy.Call<String>() {
+            @Override
+            public String call(HttpRequestBase copy) throws IOException {
+                // 复制时原请求的URI可能已被改写为逻辑服务的某个地址，副本需要重新选择
+                copy.setURI(uri);
+                return execute(copy, socketTimeout, connectTimeout, new StringResponseHandler(charset));
+            }
+        });
+    }
+
+    public <T> T execute(HttpRequestBase request, ResponseHandler<? extends T> responseHandler) throws IOException {
+        return this.execute(request, -1, -1, responseHandler);
+    }
+
+    /**
+     * 由responseHandler处理响应，处理结束后剩余报文被读完，连接归还连接池
+     */
+    public <T> T execute(HttpRequestBase request, int socketTimeout, int connectTimeout, ResponseHandler<? extends T> responseHandler) throws IOException {
+        request.setConfig(buildRequestConfig(socketTimeout, connectTimeout));
+        RequestTimings timings = isRequestTimingEnabled() ? RequestTimings.begin(request) : null;
+        Throwable failure = null;
         try {
-            return httpClient.execute(request, new StringResponseHandler(charset));
+            if (this.retryPolicy != null) {
+                return executeWithRetry(request, responseHandler);
+            }
+            return executeOnce(request, responseHandler, this.cacheMetrics != null ? HttpCacheContext.create() : null);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            throw e;
         } finally {
+            if (timings != null) {
+                timings.end(failure);
+                fireRequestCompleted(timings);
+            }
             if (releaseCon) {
                 request.releaseConnection();
             }
         }
     }
 
+    /**
+     * 执行一次请求；请求的主机为逻辑服务名时，本次执行期间请求URI改写为选中的地址，结束后还原
+     */
+    private <T> T executeOnce(HttpRequestBase request, ResponseHandler<? extends T> responseHandler, HttpClientContext context) throws IOException {
+        URI uri = request.getURI();
+        ServiceEndpoint endpoint = chooseEndpoint(request);
+        try {
+            acquirePermit(request);
+        } catch (IOException e) {
+            request.setURI(uri);
+            throw e;
+        }
+        StatusCapturingResponseHandler<T> capturingHandler = null;
+        if (endpoint != null || this.circuitBreakerRegistry != null || this.concurrencyLimiter != null) {
+            capturingHandler = new StatusCapturingResponseHandler<>(responseHandler);
+            responseHandler = capturingHandler;
+        }
+        ConcurrencyLimit concurrencyLimit = null;
+        CircuitBreaker.Permit circuitPermit = null;
+        boolean sent = false;
+        long start = endpoint != null ? endpoint.begin() : System.nanoTime();
+        try {
+            concurrencyLimit = acquireConcurrency(request);
+            circuitPermit = acquireCircuit(request);
+            sent = true;
+            if (this.http2Transport != null && this.http2Transport.isEnabledFor(request.getURI())) {
+                try {
+                    return responseHandler.handleResponse(this.http2Transport.execute(request));
+                } catch (Http2NotSupportedException e) {
+                    // 服务端未处理HTTP/2报文，改用HTTP/1.1重新发送是安全的
+                    LOGGER.warn(e.getMessage() + ", " + resolveName() + " falls back to HTTP/1.1 for it");
+                }
+            }
+            return clientFor(request).execute(request, responseHandler, context);
+        } finally {
+            // 被中止（如对冲请求胜出）的请求没有结果，不计入熔断、负载均衡和并发上限的统计
+            boolean aborted = request.isAborted();
+            if (concurrencyLimit != null) {
+                // 被熔断的请求同样不作为耗时样本
+                if (sent && !aborted) {
+                    concurrencyLimit.complete(System.nanoTime() - start, isOverload(capturingHandler.statusCode));
+                } else {
+                    concurrencyLimit.release();
+                }
+            }
+            if (circuitPermit != null) {
+                if (aborted) {
+                    circuitPermit.release();
+                } else {
+                    circuitPermit.record(isFailure(capturingHandler.statusCode), System.nanoTime() - start);
+                }
+            }
+            if (endpoint != null) {
+                if (aborted) {
+                    endpoint.cancel();
+                } else {
+                    // 被熔断的地址同样计为失败，使负载均衡尽快避开
+                    endpoint.end(start, isFailure(capturingHandler.statusCode));
+                }
+                request.setURI(uri);
+            }
+            if (context instanceof HttpCacheContext && this.cacheMetrics != null) {
+                this.cacheMetrics.record(((HttpCacheContext) context).getCacheResponseStatus());
+            }
+        }
+    }
+
+    /**
+     * 由retryPolicy决定是否重试及等待时间，每次执行使用新的上下文；等待期间被中断时抛出InterruptedIOException
+     */
+    private <T> T executeWithRetry(HttpRequestBase request, ResponseHandler<? extends T> responseHandler) throws IOException {
+        this.retryPolicy.onRequest(request);
+        for (int executionCount = 1; ; executionCount++) {
+            HttpClientContext context = this.cacheMetrics != null ? HttpCacheContext.create() : HttpClientContext.create();
+            RetryingResponseHandler<T> retryingHandler = new RetryingResponseHandler<>(request, responseHandler, executionCount, context);
+            long delay;
+            try {
+                return executeOnce(request, retryingHandler, context);
+            } catch (RetryableResponseException e) {
+                delay = e.getDelay();
+            } catch (CircuitBreakerOpenException | RateLimitExceededException | ConcurrencyLimitExceededException e) {
+                throw e;
+            } catch (IOException e) {
+                // responseHandler处理响应时抛出的异常不重试
+                delay = retryingHandler.delegated ? -1 : this.retryPolicy.retryOnException(request, e, executionCount, context);
+                if (delay < 0) {
+                    throw e;
+                }
+                LOGGER.info("Retry " + request.getMethod() + " " + request.getURI() + " in " + delay + "ms after " + e);
+            }
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry " + request.getURI());
+                }
+            }
+        }
+    }
+
+    public void executeForStream(HttpRequestBase request, StreamConsumer consumer) throws IOException {
+        this.executeForStream(request, -1, -1, consumer);
+    }
+
+    public void executeForStream(HttpRequestBase request, int socketTimeout, int connectTimeout, StreamConsumer consumer) throws IOException {
+        this.execute(request, socketTimeout, connectTimeout, new StreamResponseHandler(consumer));
+    }
+
+    public void executeForChunks(HttpRequestBase request, ChunkConsumer consumer) throws IOException {
+        this.executeForChunks(request, -1, -1, consumer);
+    }
+
+    public void executeForChunks(HttpRequestBase request, int socketTimeout, int connectTimeout, ChunkConsumer consumer) throws IOException {
+        this.execute(request, socketTimeout, connectTimeout, new ChunkResponseHandler(consumer));
+    }
+
+    public CompletableFuture<String> getAsync(String url) {
+        return this.getAsync(url, -1, -1);
+    }
+
+    public CompletableFuture<String> getAsync(String url, int socketTimeout, int connectTimeout) {
+        HttpGet httpGet = new HttpGet(url);
+        return this.executeAsync(httpGet, socketTimeout, connectTimeout);
+    }
+
+    public CompletableFuture<String> postJsonAsync(String url, String json) {
+        return this.postJsonAsync(url, json, -1, -1);
+    }
+
+    public CompletableFuture<String> postJsonAsync(String url, String json, int socketTimeout, int connectTimeout) {
+        StringEntity entity = new StringEntity(json, Consts.UTF_8);
+        entity.setContentEncoding(ContentType.APPLICATION_JSON.getCharset().name());
+        entity.setContentType(ContentType.APPLICATION_JSON.getMimeType());
+        HttpPost method = new HttpPost(url);
+        method.setEntity(entity);
+        return this.executeAsync(method, socketTimeout, connectTimeout);
+    }
+
+    public CompletableFuture<String> executeAsync(HttpRequestBase request) {
+        return this.executeAsync(request, -1, -1);
+    }
+
+    public CompletableFuture<String> executeAsync(HttpRequestBase request, int socketTimeout, int connectTimeout) {
+        return this.executeAsync(request, socketTimeout, connectTimeout, "UTF-8");
+    }
+
+    /**
+     * 基于NIO的非阻塞请求，响应在I/O线程上完成；取消返回的future会中止底层请求
+     */
+    public CompletableFuture<String> executeAsync(final HttpRequestBase request, int socketTimeout, int connectTimeout, final String charset) {
+        request.setConfig(buildRequestConfig(socketTimeout, connectTimeout));
+        if (this.http2Transport != null && this.http2Transport.isEnabledFor(request.getURI())) {
+            return executeHttp2Async(request, charset);
+        }
+        if (this.virtualThreadExecutor != null) {
+            return executeOnVirtualThread(request, socketTimeout, connectTimeout, charset);
+        }
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        CloseableHttpAsyncClient client;
+        final URI uri = request.getURI();
+        final ServiceEndpoint endpoint;
+        final ConcurrencyLimit concurrencyLimit;
+        final CircuitBreaker.Permit circuitPermit;
+        try {
+            client = getAsyncHttpClient();
+            endpoint = chooseEndpoint(request);
+            tryAcquirePermit(request, uri);
+            concurrencyLimit = acquireConcurrency(request, uri, endpoint);
+            circuitPermit = acquireCircuit(request, uri, endpoint, concurrencyLimit);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        final long start = endpoint != null ? endpoint.begin() : System.nanoTime();
+        client.execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                int statusCode = response.getStatusLine().getStatusCode();
+                boolean failure = isFailure(statusCode);
+                if (concurrencyLimit != null) {
+                    concurrencyLimit.complete(System.nanoTime() - start, isOverload(statusCode));
+                }
+                if (circuitPermit != null) {
+                    circuitPermit.record(failure, System.nanoTime() - start);
+                }
+                if (endpoint != null) {
+                    endpoint.end(start, failure);
+                    request.setURI(uri);
+                }
+                try {
+                    result.complete(new StringResponseHandler(charset).handleResponse(response));
+                } catch (IOException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                if (concurrencyLimit != null) {
+                    concurrencyLimit.complete(System.nanoTime() - start, true);
+                }
+                if (circuitPermit != null) {
+                    circuitPermit.record(true, System.nanoTime() - start);
+                }
+                if (endpoint != null) {
+                    endpoint.end(start, true);
+                    request.setURI(uri);
+                }
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                if (concurrencyLimit != null) {
+                    concurrencyLimit.release();
+                }
+                if (circuitPermit != null) {
+                    circuitPermit.release();
+                }
+                if (endpoint != null) {
+                    endpoint.cancel();
+                    request.setURI(uri);
+                }
+                result.cancel(false);
+            }
+        });
+        // httpasyncclient 4.1中取消execute返回的Future只会回调cancelled，不会关闭连接；
+        // 中止请求才会取消底层exchange并丢弃连接
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                request.abort();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 在虚拟线程上执行阻塞请求，与同步接口共用连接池、缓存、请求合并等处理；取消返回的future会中止请求
+     */
+    private CompletableFuture<String> executeOnVirtualThread(final HttpRequestBase request, final int socketTimeout,
+                                                             final int connectTimeout, final String charset) {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        try {
+            this.virtualThreadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        result.complete(execute(request, socketTimeout, connectTimeout, charset));
+                    } catch (Throwable t) {
+                        result.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                request.abort();
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<String> executeHttp2Async(final HttpRequestBase request, final String charset) {
+        final CompletableFuture<HttpResponse> exchange;
+        try {
+            final URI uri = request.getURI();
+            final ServiceEndpoint endpoint = chooseEndpoint(request);
+            tryAcquirePermit(request, uri);
+            final ConcurrencyLimit concurrencyLimit = acquireConcurrency(request, uri, endpoint);
+            final CircuitBreaker.Permit circuitPermit = acquireCircuit(request, uri, endpoint, concurrencyLimit);
+            final long start = endpoint != null ? endpoint.begin() : System.nanoTime();
+            // 请求内容在executeAsync返回前已转换为HTTP/2请求，可以立即还原URI
+            try {
+                exchange = this.http2Transport.executeAsync(request);
+            } finally {
+                request.setURI(uri);
+            }
+            if (circuitPermit != null || endpoint != null || concurrencyLimit != null) {
+                exchange.whenComplete((response, throwable) -> {
+                    boolean failure = response == null || isFailure(response.getStatusLine().getStatusCode());
+                    if (concurrencyLimit != null) {
+                        if (exchange.isCancelled()) {
+                            concurrencyLimit.release();
+                        } else {
+                            concurrencyLimit.complete(System.nanoTime() - start,
+                                    response == null || isOverload(response.getStatusLine().getStatusCode()));
+                        }
+                    }
+                    if (circuitPermit != null) {
+                        if (exchange.isCancelled()) {
+                            circuitPermit.release();
+                        } else {
+                            circuitPermit.record(failure, System.nanoTime() - start);
+                        }
+                    }
+                    if (endpoint != null) {
+                        if (exchange.isCancelled()) {
+                            endpoint.cancel();
+                        } else {
+                            endpoint.end(start, failure);
+                        }
+                    }
+                });
+            }
+        } catch (IOException e) {
+            CompletableFuture<String> result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+            return result;
+        }
+        final CompletableFuture<String> result = exchange.thenApply(response -> {
+            try {
+                return new StringResponseHandler(charset).handleResponse(response);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         if (this.httpClient != null) {
             return;
         }
 
-        int timeToLive;
-        if (this.timeToLive != null) {
-            timeToLive = this.timeToLive;
-        } else {
-            timeToLive = DEFAULT_TIME_TO_LIVE;
+        if (this.cacheEnabled) {
+            long maxBytes = this.cacheMaxBytes != null ? this.cacheMaxBytes : DEFAULT_CACHE_MAX_BYTES;
+            this.cacheStorage = new WeightedHttpCacheStorage(maxBytes);
+            this.cacheMetrics = new HttpCacheMetrics(this.cacheStorage);
+            registerMBean(this.cacheMetrics, "HttpCache", null);
+        }
+
+        if (this.dnsResolver instanceof CachingDnsResolver) {
+            ((CachingDnsResolver) this.dnsResolver).start();
+            this.dnsResolverStarted = true;
+            registerMBean(this.dnsResolver, "DnsCache", null);
+        }
+
+        InstrumentedConnectionManager defaultConnectionManager = createConnectionManager(resolveMaxTotal(), resolveMaxPerRoute());
+        // HTTP/2传输不经过HttpClient 4的连接池，不注册始终为空的连接池指标
+        if (this.transport != Transport.HTTP2) {
+            registerMBean(new ConnectionPoolMetrics(defaultConnectionManager), "ConnectionPool", null);
         }
+        registerMBean(this.tlsHandshakeMetrics, "TlsHandshake", null);
+        if (this.circuitBreakerRegistry != null) {
+            registerMBean(this.circuitBreakerRegistry, "CircuitBreaker", null);
+        }
+        if (this.concurrencyLimiter != null) {
+            registerMBean(this.concurrencyLimiter, "ConcurrencyLimit", null);
+        }
+        if (this.services != null && !this.services.isEmpty()) {
+            Map<String, LoadBalancedService> index = new HashMap<>();
+            for (LoadBalancedService service : this.services) {
+                service.init();
+                index.put(service.getName().trim().toLowerCase(), service);
+            }
+            this.serviceIndex = index;
+            registerMBean(new LoadBalancerMetrics(this.services), "LoadBalancer", null);
+        }
+        if (this.rateLimiters != null && !this.rateLimiters.isEmpty()) {
+            Map<String, RateLimiter> index = new HashMap<>();
+            for (RateLimiter rateLimiter : this.rateLimiters) {
+                rateLimiter.init();
+                for (HttpRoute route : Routes.parse(rateLimiter.getRoute())) {
+                    index.put(route.getTargetHost().toURI(), rateLimiter);
+                }
+            }
+            this.rateLimiterIndex = index;
+            registerMBean(new RateLimiterMetrics(this.rateLimiters), "RateLimiter", null);
+        }
+        this.connectionManager = defaultConnectionManager;
+        this.httpClient = createHttpClient(this.connectionManager);
 
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(getDefaultRegistry(), null, null, null, timeToLive, TimeUnit.MILLISECONDS);
+        if (this.evictionEnabled) {
+            this.idleConnectionEvictor = new IdleConnectionEvictor(resolveName(),
+                    this.evictionInterval != null ? this.evictionInterval : DEFAULT_EVICTION_INTERVAL,
+                    this.maxIdleTime != null ? this.maxIdleTime : DEFAULT_MAX_IDLE_TIME);
+            this.idleConnectionEvictor.register(defaultConnectionManager);
+        }
+
+        if (this.downstreamPools != null && !this.downstreamPools.isEmpty()) {
+            Map<String, CloseableHttpClient> clients = new HashMap<>();
+            Map<String, PoolingHttpClientConnectionManager> connectionManagers = new LinkedHashMap<>();
+            for (DownstreamPool pool : this.downstreamPools) {
+                InstrumentedConnectionManager poolConnectionManager = createConnectionManager(
+                        pool.getMaxTotal() != null ? pool.getMaxTotal() : resolveMaxTotal(),
+                        pool.getMaxPerRoute() != null ? pool.getMaxPerRoute() : resolveMaxPerRoute());
+                if (this.transport != Transport.HTTP2) {
+                    registerMBean(new ConnectionPoolMetrics(poolConnectionManager), "ConnectionPool", pool.getName());
+                }
+                if (this.idleConnectionEvictor != null) {
+                    this.idleConnectionEvictor.register(poolConnectionManager);
+                }
+                CloseableHttpClient poolClient = createHttpClient(poolConnectionManager);
+                for (String host : pool.getHostList()) {
+                    clients.put(host, poolClient);
+                }
+                connectionManagers.put(pool.getName(), poolConnectionManager);
+            }
+            this.downstreamClients = clients;
+            this.downstreamConnectionManagers = connectionManagers;
+        }
+
+        if (this.idleConnectionEvictor != null) {
+            this.idleConnectionEvictor.start();
+        }
+
+        if (this.virtualThreadsEnabled) {
+            this.virtualThreadFactory = VirtualThreads.factory("httpclient-" + resolveName() + "-");
+            if (this.virtualThreadFactory != null) {
+                this.virtualThreadExecutor = VirtualThreads.newThreadPerTaskExecutor(this.virtualThreadFactory);
+            } else {
+                LOGGER.warn("Virtual threads are not supported by " + System.getProperty("java.version")
+                        + ", " + resolveName() + " falls back to platform threads");
+            }
+        }
+
+        if (this.hedgingPolicy != null) {
+            this.hedgingPolicy.start(this.virtualThreadFactory);
+            this.hedgingPolicyStarted = true;
+        }
+
+        if (this.transport == Transport.HTTP2) {
+            warnHttp2Limitations();
+            this.http2Transport = new Http2Transport(resolveSSLContext(), resolveHostnameVerifier(), this.ioThreadCount,
+                    this.retryPolicy != null ? 0 : this.retryCount, this.retryPolicy == null && this.retry, this.evictionEnabled ? (this.maxIdleTime != null ? this.maxIdleTime : DEFAULT_MAX_IDLE_TIME) : 0,
+                    this.dnsResolver, this.tlsHandshakeMetrics);
+        }
+    }
+
+    /**
+     * HTTP/2传输不经过HttpClient 4的连接池和执行链，以下配置不生效或只部分生效，启动时逐项提示
+     */
+    private void warnHttp2Limitations() {
+        String name = resolveName();
+        if (this.cacheStorage != null) {
+            LOGGER.warn("HTTP cache is not applied to HTTP/2 transport of " + name);
+        }
+        if (this.routeMaxPerRoute != null && !this.routeMaxPerRoute.isEmpty()) {
+            LOGGER.warn("routeMaxPerRoute is ignored by HTTP/2 transport of " + name + ", each route uses one multiplexed connection");
+        }
+        if (this.downstreamPools != null && !this.downstreamPools.isEmpty()) {
+            LOGGER.warn("Downstream pools are ignored by HTTP/2 transport of " + name + ", all routes share the HTTP/2 connections");
+        }
+        if (this.jmxEnabled) {
+            LOGGER.warn("Connection pool MBeans are not registered for HTTP/2 transport of " + name);
+        }
+        if (isRequestTimingEnabled()) {
+            LOGGER.warn("Request timing listeners of " + name + " only receive total duration under HTTP/2 transport, "
+                    + "DNS, connect, TLS and first byte phases are not measured");
+        }
+        if (this.requestCompression != Compression.NONE) {
+            LOGGER.warn("Compressed request bodies of " + name + " are buffered in memory under HTTP/2 transport");
+        }
+        if (this.dnsResolver != null) {
+            LOGGER.warn("DNS address rotation of " + name + " only applies when HTTP/2 transport opens a new connection");
+        }
+        LOGGER.warn("Responses of " + name + " are fully buffered in memory under HTTP/2 transport, "
+                + "executeForStream and executeForChunks do not stream large bodies");
+    }
+
+    private InstrumentedConnectionManager createConnectionManager(int maxTotal, int maxPerRoute) {
+        DnsResolver dnsResolver = this.dnsResolver;
+        if (isRequestTimingEnabled()) {
+            dnsResolver = new TimingDnsResolver(dnsResolver != null ? dnsResolver : SystemDefaultDnsResolver.INSTANCE);
+        }
+        InstrumentedConnectionManager connectionManager = new InstrumentedConnectionManager(getDefaultRegistry(), dnsResolver, resolveTimeToLive(), TimeUnit.MILLISECONDS);
+        connectionManager.setRequestTimingEnabled(isRequestTimingEnabled());
 
         SocketConfig socketConfig = SocketConfig.custom().setTcpNoDelay(true).build();
         connectionManager.setDefaultSocketConfig(socketConfig);
-        connectionManager.setValidateAfterInactivity(1000);
+        connectionManager.setValidateAfterInactivity(resolveValidateAfterInactivity());
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setMaxTotal(maxTotal);
+        applyRouteLimits(connectionManager);
+        return connectionManager;
+    }
 
-        if (this.maxPerRoute != null) {
-            connectionManager.setDefaultMaxPerRoute(this.maxPerRoute);
-        } else {
-            connectionManager.setDefaultMaxPerRoute(DEFAULT_MAX_PER_ROUTE);
+    /**
+     * 未显式配置时，开启空闲连接回收后空闲连接已由后台线程关闭，复用前的陈旧检查放宽到maxIdleTime，避免每次取连接都多一次阻塞读
+     */
+    private int resolveValidateAfterInactivity() {
+        if (this.validateAfterInactivity != null) {
+            return this.validateAfterInactivity;
+        }
+        if (this.evictionEnabled) {
+            return (int) Math.min(Integer.MAX_VALUE, this.maxIdleTime != null ? this.maxIdleTime : DEFAULT_MAX_IDLE_TIME);
         }
+        return DEFAULT_VALIDATE_AFTER_INACTIVITY;
+    }
 
-        if (this.maxTotal != null) {
-            connectionManager.setMaxTotal(this.maxTotal);
-        } else {
-            connectionManager.setMaxTotal(DEFAULT_MAX_TOTAL);
+    /**
+     * 以 org.javaq.http:type=type,name=beanName[,pool=poolName] 注册MBean
+     */
+    private void registerMBean(Object mbean, String type, String poolName) {
+        if (!this.jmxEnabled) {
+            return;
         }
+        String name = resolveName();
+        try {
+            StringBuilder objectName = new StringBuilder(JMX_DOMAIN)
+                    .append(":type=").append(type)
+                    .append(",name=").append(ObjectName.quote(name));
+            if (poolName != null) {
+                objectName.append(",pool=").append(ObjectName.quote(poolName));
+            }
+            ObjectName mbeanName = new ObjectName(objectName.toString());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, mbeanName);
+            this.registeredMBeans.add(mbeanName);
+        } catch (JMException e) {
+            LOGGER.warn("Fail to register " + type + " MBean for " + name, e);
+        }
+    }
+
+    private String resolveName() {
+        return this.beanName != null ? this.beanName : getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+
+    private void unregisterMBeans() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName mbeanName : this.registeredMBeans) {
+            try {
+                mBeanServer.unregisterMBean(mbeanName);
+            } catch (JMException e) {
+                LOGGER.warn("Fail to unregister MBean " + mbeanName, e);
+            }
+        }
+        this.registeredMBeans.clear();
+    }
+
+    /**
+     * 异步请求在发出前判断熔断，被熔断时释放已获取的并发配额
+     */
+    private CircuitBreaker.Permit acquireCircuit(HttpRequestBase request, URI uri, ServiceEndpoint endpoint,
+                                                 ConcurrencyLimit concurrencyLimit) throws CircuitBreakerOpenException {
+        try {
+            return acquireCircuit(request);
+        } catch (CircuitBreakerOpenException e) {
+            if (concurrencyLimit != null) {
+                concurrencyLimit.release();
+            }
+            rejectBeforeSend(request, uri, endpoint);
+            throw e;
+        }
+    }
 
-        HttpClientBuilder clientBuilder = HttpClients.custom()
-                .setRetryHandler(new DefaultHttpRequestRetryHandler(this.retryCount, this.retry));
+    private ConcurrencyLimit acquireConcurrency(HttpRequestBase request, URI uri, ServiceEndpoint endpoint) throws ConcurrencyLimitExceededException {
+        try {
+            return acquireConcurrency(request);
+        } catch (ConcurrencyLimitExceededException e) {
+            rejectBeforeSend(request, uri, endpoint);
+            throw e;
+        }
+    }
+
+    /**
+     * 异步请求在发出前被拒绝时还原已改写的URI，并计入所选地址的失败
+     */
+    private static void rejectBeforeSend(HttpRequestBase request, URI uri, ServiceEndpoint endpoint) {
+        if (endpoint != null) {
+            endpoint.end(endpoint.begin(), true);
+            request.setURI(uri);
+        }
+    }
+
+    /**
+     * 路由进行中的请求已达到自适应并发上限时直接拒绝；HTTP/1.1下上限不超过连接池的单路由连接数
+     */
+    private ConcurrencyLimit acquireConcurrency(HttpRequestBase request) throws ConcurrencyLimitExceededException {
+        if (this.concurrencyLimiter == null) {
+            return null;
+        }
+        URI uri = request.getURI();
+        ConcurrencyLimit concurrencyLimit = this.concurrencyLimiter.get(uri);
+        if (concurrencyLimit == null) {
+            HttpHost host = URIUtils.extractHost(uri);
+            int ceiling = this.http2Transport != null || host == null ? Integer.MAX_VALUE : getMaxPerRoute(Routes.of(host));
+            concurrencyLimit = this.concurrencyLimiter.of(uri, ceiling);
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            throw new ConcurrencyLimitExceededException(concurrencyLimit.getRoute(), concurrencyLimit.getLimit());
+        }
+        return concurrencyLimit;
+    }
+
+    /**
+     * 请求的主机为逻辑服务名时选择一个地址并改写请求URI，否则返回null
+     */
+    private ServiceEndpoint chooseEndpoint(HttpRequestBase request) {
+        String host = request.getURI().getHost();
+        if (this.serviceIndex.isEmpty() || host == null) {
+            return null;
+        }
+        LoadBalancedService service = this.serviceIndex.get(host.toLowerCase());
+        if (service == null) {
+            return null;
+        }
+        ServiceEndpoint endpoint = service.choose();
+        request.setURI(endpoint.rewrite(request.getURI()));
+        return endpoint;
+    }
+
+    /**
+     * 按请求的实际目标路由限流，BLOCK模式下在调用线程等待
+     */
+    private void acquirePermit(HttpRequestBase request) throws IOException {
+        RateLimiter rateLimiter = rateLimiterFor(request);
+        if (rateLimiter != null) {
+            rateLimiter.acquire();
+        }
+    }
+
+    /**
+     * 异步请求不阻塞调用线程，没有可用许可时直接失败，并还原已改写的URI
+     */
+    private void tryAcquirePermit(HttpRequestBase request, URI uri) throws RateLimitExceededException {
+        RateLimiter rateLimiter = rateLimiterFor(request);
+        if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+            request.setURI(uri);
+            throw new RateLimitExceededException(rateLimiter.getRoute());
+        }
+    }
+
+    private RateLimiter rateLimiterFor(HttpRequestBase request) {
+        if (this.rateLimiterIndex.isEmpty()) {
+            return null;
+        }
+        return this.rateLimiterIndex.get(Routes.name(request.getURI()));
+    }
+
+    /**
+     * 未配置熔断时返回null；路由处于熔断状态时直接抛出CircuitBreakerOpenException
+     */
+    private CircuitBreaker.Permit acquireCircuit(HttpRequestBase request) throws CircuitBreakerOpenException {
+        if (this.circuitBreakerRegistry == null) {
+            return null;
+        }
+        CircuitBreaker circuitBreaker = this.circuitBreakerRegistry.of(request.getURI());
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            this.circuitBreakerRegistry.recordRejected();
+            throw new CircuitBreakerOpenException(circuitBreaker.getRoute());
+        }
+        return permit;
+    }
+
+    /**
+     * 未收到响应或429、503、504响应说明下游已过载，用于收缩并发上限
+     */
+    private static boolean isOverload(int statusCode) {
+        return statusCode < 0 || statusCode == 429 || statusCode == 503 || statusCode == 504;
+    }
+
+    /**
+     * 未收到响应或5xx响应计为熔断失败
+     */
+    private static boolean isFailure(int statusCode) {
+        return statusCode < 0 || statusCode >= 500;
+    }
+
+    private boolean isRequestTimingEnabled() {
+        return this.requestTimingListeners != null && !this.requestTimingListeners.isEmpty();
+    }
+
+    private void fireRequestCompleted(RequestTimings timings) {
+        for (RequestTimingListener listener : this.requestTimingListeners) {
+            try {
+                listener.onRequestCompleted(timings);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Request timing listener " + listener + " failed", e);
+            }
+        }
+    }
+
+    private void applyRouteLimits(ConnPoolControl<HttpRoute> connectionManager) {
+        if (this.routeMaxPerRoute == null) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : this.routeMaxPerRoute.entrySet()) {
+            for (HttpRoute route : Routes.parse(entry.getKey())) {
+                connectionManager.setMaxPerRoute(route, entry.getValue());
+            }
+        }
+    }
+
+    private CloseableHttpClient createHttpClient(PoolingHttpClientConnectionManager connectionManager) {
+        HttpClientBuilder clientBuilder = this.cacheStorage != null ? createCachingClientBuilder() : HttpClients.custom();
+        // 配置了retryPolicy时由其负责重试，关闭HttpClient内置的立即重试
+        clientBuilder.setRetryHandler(this.retryPolicy != null ? new DefaultHttpRequestRetryHandler(0, false) :
+                new DefaultHttpRequestRetryHandler(this.retryCount, this.retry));
         clientBuilder.setConnectionManager(connectionManager);
-        this.httpClient = clientBuilder.build();
+        if (isRequestTimingEnabled()) {
+            clientBuilder.setRequestExecutor(new TimingHttpRequestExecutor());
+        }
+        return clientBuilder.build();
+    }
+
+    /**
+     * 请求的主机配置了独立连接池时使用对应的客户端，否则使用默认客户端
+     */
+    private CloseableHttpClient clientFor(HttpRequestBase request) {
+        if (this.downstreamClients.isEmpty() || request.getURI().getHost() == null) {
+            return this.httpClient;
+        }
+        CloseableHttpClient client = this.downstreamClients.get(request.getURI().getHost().toLowerCase());
+        return client != null ? client : this.httpClient;
+    }
+
+    /**
+     * 路由所在连接池的单路由连接上限，请求的主机配置了独立连接池时取该连接池的配置
+     */
+    protected int getMaxPerRoute(HttpRoute route) {
+        PoolingHttpClientConnectionManager routeConnectionManager = this.connectionManager;
+        if (this.downstreamPools != null) {
+            String host = route.getTargetHost().getHostName().toLowerCase();
+            for (DownstreamPool pool : this.downstreamPools) {
+                if (pool.getHostList().contains(host)) {
+                    routeConnectionManager = this.downstreamConnectionManagers.get(pool.getName());
+                    break;
+                }
+            }
+        }
+        return routeConnectionManager != null ? routeConnectionManager.getMaxPerRoute(route) : resolveMaxPerRoute();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.idleConnectionEvictor != null) {
+            this.idleConnectionEvictor.shutdown();
+        }
+        unregisterMBeans();
+        if (this.virtualThreadExecutor != null) {
+            this.virtualThreadExecutor.shutdownNow();
+        }
+        if (this.hedgingPolicyStarted) {
+            this.hedgingPolicyStarted = false;
+            this.hedgingPolicy.release();
+        }
+        if (this.dnsResolverStarted) {
+            this.dnsResolverStarted = false;
+            ((CachingDnsResolver) this.dnsResolver).release();
+        }
+        // 与getAsyncHttpClient同步，关闭后不会再创建新的异步客户端
+        synchronized (this) {
+            this.closed = true;
+        }
+        if (this.asyncHttpClient != null) {
+            this.asyncHttpClient.close();
+        }
+        if (this.http2Transport != null) {
+            this.http2Transport.close();
+        }
+        if (this.httpClient != null) {
+            this.httpClient.close();
+        }
+        for (CloseableHttpClient client : new HashSet<>(this.downstreamClients.values())) {
+            client.close();
+        }
+    }
+
+    /**
+     * 异步客户端在首次使用时创建，未使用异步接口时不会启动I/O reactor线程；destroy之后调用抛出IOException
+     */
+    protected CloseableHttpAsyncClient getAsyncHttpClient() throws IOException {
+        if (this.closed) {
+            throw new IOException(resolveName() + " has been destroyed");
+        }
+        CloseableHttpAsyncClient client = this.asyncHttpClient;
+        if (client == null) {
+            synchronized (this) {
+                if (this.closed) {
+                    throw new IOException(resolveName() + " has been destroyed");
+                }
+                client = this.asyncHttpClient;
+                if (client == null) {
+                    client = createAsyncHttpClient();
+                    client.start();
+                    this.asyncHttpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private CloseableHttpAsyncClient createAsyncHttpClient() throws IOReactorException {
+        IOReactorConfig.Builder ioReactorConfig = IOReactorConfig.custom()
+                .setTcpNoDelay(true)
+                .setSoTimeout(this.defaultSocketTimeout)
+                .setConnectTimeout(this.defaultConnectTimeout);
+        if (this.ioThreadCount != null) {
+            ioReactorConfig.setIoThreadCount(this.ioThreadCount);
+        }
+        DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(ioReactorConfig.build());
+
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(ioReactor, null, getDefaultAsyncRegistry(), null, this.dnsResolver, resolveTimeToLive(), TimeUnit.MILLISECONDS);
+        connectionManager.setDefaultMaxPerRoute(resolveMaxPerRoute());
+        connectionManager.setMaxTotal(resolveMaxTotal());
+        applyRouteLimits(connectionManager);
+        if (this.idleConnectionEvictor != null) {
+            this.idleConnectionEvictor.register(connectionManager);
+        }
+
+        return HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .build();
+    }
+
+    private InputStreamEntity chunkedEntity(InputStream content, ContentType contentType) {
+        InputStreamEntity entity = new InputStreamEntity(content, -1, contentType);
+        entity.setChunked(true);
+        return entity;
+    }
+
+    private boolean isCoalescible(HttpRequestBase request) {
+        String method = request.getMethod();
+        return HttpGet.METHOD_NAME.equals(method) || "HEAD".equals(method);
+    }
+
+    private String coalescingKey(HttpRequestBase request, String charset) {
+        StringBuilder key = new StringBuilder(128)
+                .append(request.getMethod()).append(' ')
+                .append(request.getURI()).append(' ')
+                .append(charset);
+        for (Header header : request.getAllHeaders()) {
+            key.append('\n').append(header.getName()).append(':').append(header.getValue());
+        }
+        return key.toString();
+    }
+
+    /**
+     * 响应缓存遵循Cache-Control/ETag语义，只作用于同步请求
+     */
+    private HttpClientBuilder createCachingClientBuilder() {
+        long maxObjectSize = this.cacheMaxObjectSize != null ? this.cacheMaxObjectSize : DEFAULT_CACHE_MAX_OBJECT_SIZE;
+        CacheConfig cacheConfig = CacheConfig.custom()
+                .setMaxObjectSize(maxObjectSize)
+                .build();
+        return CachingHttpClientBuilder.create()
+                .setCacheConfig(cacheConfig)
+                .setHttpCacheStorage(this.cacheStorage);
+    }
+
+    /**
+     * 合并请求的等待线程最多等待本次调用的连接超时与读超时之和，与自己发出请求时的耗时上限相当
+     */
+    private long coalescingTimeout(int socketTimeout, int connectTimeout) {
+        return (long) (socketTimeout > 0 ? socketTimeout : this.defaultSocketTimeout)
+                + (connectTimeout > 0 ? connectTimeout : this.defaultConnectTimeout);
+    }
+
+    private RequestConfig buildRequestConfig(int socketTimeout, int connectTimeout) {
+        if (socketTimeout <= 0) {
+            socketTimeout = this.defaultSocketTimeout;
+        }
+        if (connectTimeout <= 0) {
+            connectTimeout = this.defaultConnectTimeout;
+        }
+        return RequestConfig.custom()
+                .setSocketTimeout(socketTimeout)
+                .setConnectTimeout(connectTimeout)
+                .build();
+    }
+
+    private int resolveTimeToLive() {
+        return this.timeToLive != null ? this.timeToLive : DEFAULT_TIME_TO_LIVE;
+    }
+
+    private int resolveMaxPerRoute() {
+        return this.maxPerRoute != null ? this.maxPerRoute : DEFAULT_MAX_PER_ROUTE;
+    }
+
+    private int resolveMaxTotal() {
+        return this.maxTotal != null ? this.maxTotal : DEFAULT_MAX_TOTAL;
     }
 
     public void setHttpClient(CloseableHttpClient httpClient) {
@@ -197,6 +1326,67 @@ public abstract class BaseHttpClient implements InitializingBean {
         this.maxTotal = maxTotal;
     }
 
+    public Map<String, Integer> getRouteMaxPerRoute() {
+        return routeMaxPerRoute;
+    }
+
+    /**
+     * 按路由设置最大连接数，key支持 host、host:port、scheme://host[:port]
+     */
+    public void setRouteMaxPerRoute(Map<String, Integer> routeMaxPerRoute) {
+        this.routeMaxPerRoute = routeMaxPerRoute;
+    }
+
+    public List<DownstreamPool> getDownstreamPools() {
+        return downstreamPools;
+    }
+
+    public void setDownstreamPools(List<DownstreamPool> downstreamPools) {
+        this.downstreamPools = downstreamPools;
+    }
+
+    @Override
+    public void setBeanName(String beanName) {
+        this.beanName = beanName;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    public List<RequestTimingListener> getRequestTimingListeners() {
+        return requestTimingListeners;
+    }
+
+    /**
+     * 注册同步请求的分阶段耗时监听器，需在初始化前设置；未设置时不安装任何计时组件
+     */
+    public void setRequestTimingListeners(List<RequestTimingListener> requestTimingListeners) {
+        this.requestTimingListeners = requestTimingListeners;
+    }
+
+    /**
+     * 同步客户端的TLS完整握手与会话复用次数
+     */
+    public TlsHandshakeMetrics getTlsHandshakeMetrics() {
+        return tlsHandshakeMetrics;
+    }
+
+    public PoolingHttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * 独立连接池的连接管理器，key为连接池名称
+     */
+    public Map<String, PoolingHttpClientConnectionManager> getDownstreamConnectionManagers() {
+        return downstreamConnectionManagers;
+    }
+
     public Integer getTimeToLive() {
         return timeToLive;
     }
@@ -205,6 +1395,44 @@ public abstract class BaseHttpClient implements InitializingBean {
         this.timeToLive = timeToLive;
     }
 
+    public boolean isEvictionEnabled() {
+        return evictionEnabled;
+    }
+
+    /**
+     * 开启后台线程定时关闭过期和空闲的连接
+     */
+    public void setEvictionEnabled(boolean evictionEnabled) {
+        this.evictionEnabled = evictionEnabled;
+    }
+
+    public Long getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(Long evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    public Long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(Long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public Integer getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * 连接空闲超过该时间后复用前先做陈旧检查，毫秒，小于等于0表示不检查；默认1000，开启空闲连接回收时默认为maxIdleTime
+     */
+    public void setValidateAfterInactivity(Integer validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
     public Integer getSocketTimeout() {
         return defaultSocketTimeout;
     }
@@ -221,6 +1449,109 @@ public abstract class BaseHttpClient implements InitializingBean {
         this.defaultConnectTimeout = connectTimeout;
     }
 
+    public Integer getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    public void setIoThreadCount(Integer ioThreadCount) {
+        this.ioThreadCount = ioThreadCount;
+    }
+
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    public void setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+    }
+
+    /**
+     * 开启虚拟线程且运行时支持时返回虚拟线程工厂，否则返回null
+     */
+    protected ThreadFactory getVirtualThreadFactory() {
+        return virtualThreadFactory;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * 为null时使用HTTP/1.1
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport != null ? transport : Transport.HTTP1;
+    }
+
+    public Compression getRequestCompression() {
+        return requestCompression;
+    }
+
+    /**
+     * post请求报文的压缩算法：none、gzip、deflate，默认none
+     */
+    public void setRequestCompression(Compression requestCompression) {
+        this.requestCompression = requestCompression != null ? requestCompression : Compression.NONE;
+    }
+
+    public Long getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    /**
+     * 小于该字节数的报文不压缩，默认8192
+     */
+    public void setRequestCompressionThreshold(Long requestCompressionThreshold) {
+        this.requestCompressionThreshold = requestCompressionThreshold;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    public Long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public void setCacheMaxBytes(Long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    public Long getCacheMaxObjectSize() {
+        return cacheMaxObjectSize;
+    }
+
+    public void setCacheMaxObjectSize(Long cacheMaxObjectSize) {
+        this.cacheMaxObjectSize = cacheMaxObjectSize;
+    }
+
+    /**
+     * 未开启缓存时返回null
+     */
+    public HttpCacheMetrics getCacheMetrics() {
+        return cacheMetrics;
+    }
+
+    public boolean isCoalescingEnabled() {
+        return coalescingEnabled;
+    }
+
+    /**
+     * 开启后，相同method、url、请求头的并发GET/HEAD请求只发出一次，结果共享给所有等待线程；
+     * 等待线程最多等待连接超时与读超时之和，超时抛出InterruptedIOException
+     */
+    public void setCoalescingEnabled(boolean coalescingEnabled) {
+        this.coalescingEnabled = coalescingEnabled;
+    }
+
+    public SingleFlight<String> getSingleFlight() {
+        return singleFlight;
+    }
+
     public void setRetry(boolean retry) {
         this.retry = retry;
     }
@@ -233,6 +1564,85 @@ public abstract class BaseHttpClient implements InitializingBean {
         this.releaseCon = releaseCon;
     }
 
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * 配置后同步请求及虚拟线程执行的异步请求按该策略退避重试，retry、retryCount不再生效；NIO异步请求不受影响
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public CircuitBreakerRegistry getCircuitBreakerRegistry() {
+        return circuitBreakerRegistry;
+    }
+
+    /**
+     * 配置后按路由熔断，熔断期间请求抛出CircuitBreakerOpenException
+     */
+    public void setCircuitBreakerRegistry(CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+    }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * 配置后对返回字符串的GET、HEAD、OPTIONS请求启用对冲，包括get和虚拟线程执行的getAsync；
+     * 客户端启动时启动对冲线程，关闭时释放，共享的policy在最后一个客户端关闭后才停止
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    public List<LoadBalancedService> getServices() {
+        return services;
+    }
+
+    /**
+     * 逻辑服务列表，请求URL的主机名为服务名时由客户端在服务的地址间做负载均衡；服务名需是合法的主机名
+     */
+    public void setServices(List<LoadBalancedService> services) {
+        this.services = services;
+    }
+
+    public DnsResolver getDnsResolver() {
+        return dnsResolver;
+    }
+
+    /**
+     * 新建连接时使用的DNS解析器，为null时使用系统解析；{@link CachingDnsResolver}随客户端启动后台刷新，
+     * 关闭时释放，共享的解析器在最后一个客户端关闭后才停止刷新
+     */
+    public void setDnsResolver(DnsResolver dnsResolver) {
+        this.dnsResolver = dnsResolver;
+    }
+
+    public List<RateLimiter> getRateLimiters() {
+        return rateLimiters;
+    }
+
+    /**
+     * 按路由限流，每次实际发出的请求（包括重试和对冲请求）占用一个许可；异步接口在没有可用许可时直接失败
+     */
+    public void setRateLimiters(List<RateLimiter> rateLimiters) {
+        this.rateLimiters = rateLimiters;
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * 按路由自适应调整允许的并发请求数，超过上限的请求直接失败而不是在连接池中排队
+     */
+    public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
     public SSLContextFactory getSslContextFactory() {
         return sslContextFactory;
     }
@@ -241,6 +1651,63 @@ public abstract class BaseHttpClient implements InitializingBean {
         this.sslContextFactory = sslContextFactory;
     }
 
+    /**
+     * 记录响应状态码后交给responseHandler处理，用于区分网络异常和responseHandler抛出的异常
+     */
+    private static class StatusCapturingResponseHandler<T> implements ResponseHandler<T> {
+        private final ResponseHandler<? extends T> responseHandler;
+        private int statusCode = -1;
+
+        StatusCapturingResponseHandler(ResponseHandler<? extends T> responseHandler) {
+            this.responseHandler = responseHandler;
+        }
+
+        @Override
+        public T handleResponse(HttpResponse response) throws IOException {
+            this.statusCode = response.getStatusLine().getStatusCode();
+            return responseHandler.handleResponse(response);
+        }
+    }
+
+    /**
+     * 先由retryPolicy判断响应是否需要重试，需要时读完报文并抛出RetryableResponseException，否则交给responseHandler处理
+     */
+    private class RetryingResponseHandler<T> implements ResponseHandler<T> {
+        private final HttpRequestBase request;
+        private final ResponseHandler<? extends T> responseHandler;
+        private final int executionCount;
+        private final HttpClientContext context;
+        private final URI uri;
+        private boolean delegated;
+
+        RetryingResponseHandler(HttpRequestBase request, ResponseHandler<? extends T> responseHandler, int executionCount, HttpClientContext context) {
+            this.request = request;
+            this.uri = request.getURI();
+            this.responseHandler = responseHandler;
+            this.executionCount = executionCount;
+            this.context = context;
+        }
+
+        @Override
+        public T handleResponse(HttpResponse response) throws IOException {
+            // 逻辑服务的请求此时已改写为选中的地址，重试预算仍按逻辑服务统计
+            URI target = request.getURI();
+            request.setURI(uri);
+            long delay;
+            try {
+                delay = retryPolicy.retryOnResponse(request, response, executionCount, context);
+            } finally {
+                request.setURI(target);
+            }
+            if (delay >= 0) {
+                EntityUtils.consume(response.getEntity());
+                throw new RetryableResponseException(response.getStatusLine(), delay);
+            }
+            this.delegated = true;
+            return responseHandler.handleResponse(response);
+        }
+    }
+
     public static class StringResponseHandler extends BasicResponseHandler {
         private String charset = "UTF-8";
 
@@ -258,15 +1725,40 @@ public abstract class BaseHttpClient implements InitializingBean {
     }
 
     private Registry<ConnectionSocketFactory> getDefaultRegistry() {
+        ConnectionSocketFactory plainSocketFactory = PlainConnectionSocketFactory.getSocketFactory();
+        if (isRequestTimingEnabled()) {
+            plainSocketFactory = new TimingConnectionSocketFactory(plainSocketFactory);
+        }
         return RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("http", plainSocketFactory)
                 .register("https", getSSLConnectionSocketFactory())
                 .build();
     }
 
+    private SSLContext resolveSSLContext() {
+        return null == sslContextFactory ? SSLContexts.createDefault() : sslContextFactory.getSslContext();
+    }
+
+    private HostnameVerifier resolveHostnameVerifier() {
+        return null == sslContextFactory ? new NoopHostnameVerifier() : sslContextFactory.getHostnameVerifier();
+    }
+
     private SSLConnectionSocketFactory getSSLConnectionSocketFactory() {
-        return null == sslContextFactory ? new SSLConnectionSocketFactory(SSLContexts.createDefault(), new NoopHostnameVerifier()) :
-                new SSLConnectionSocketFactory(sslContextFactory.getSslContext(), sslContextFactory.getHostnameVerifier());
+        SSLContext sslContext = resolveSSLContext();
+        HostnameVerifier hostnameVerifier = resolveHostnameVerifier();
+        return isRequestTimingEnabled() ? new TimingSSLConnectionSocketFactory(sslContext, hostnameVerifier, this.tlsHandshakeMetrics) :
+                new MonitoredSSLConnectionSocketFactory(sslContext, hostnameVerifier, this.tlsHandshakeMetrics);
+    }
+
+    private Registry<SchemeIOSessionStrategy> getDefaultAsyncRegistry() {
+        return RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register("http", NoopIOSessionStrategy.INSTANCE)
+                .register("https", getSSLIOSessionStrategy())
+                .build();
+    }
+
+    private SSLIOSessionStrategy getSSLIOSessionStrategy() {
+        return new MonitoredSSLIOSessionStrategy(resolveSSLContext(), resolveHostnameVerifier(), this.tlsHandshakeMetrics);
     }
 
 }
@@ -0,0 +1,189 @@
+package org.javaq.http.core;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界并发批量执行：最多maxConcurrency个线程，同一路由的并发数不超过该路由的连接上限。
+ * 工作线程按输入顺序挑选所属路由仍有空闲名额的请求，某个路由占满时不会阻塞其它路由的请求；结果按输入顺序返回
+ */
+public class BatchExecutor<T, V> {
+
+    public interface Task<T, V> {
+        V execute(T item) throws Exception;
+    }
+
+    public interface RouteResolver<T> {
+        HttpRoute routeOf(T item) throws Exception;
+
+        int maxPerRoute(HttpRoute route);
+    }
+
+    private final List<T> items;
+
+    private final RouteResolver<T> routeResolver;
+
+    private final Task<T, V> task;
+
+    private final ThreadFactory threadFactory;
+
+    private final HttpRoute[] routes;
+
+    private final Object[] results;
+
+    private final LinkedList<Integer> pending = new LinkedList<>();
+
+    private final Map<HttpRoute, Integer> inFlight = new HashMap<>();
+
+    private final Map<HttpRoute, Integer> limits = new HashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    public BatchExecutor(List<T> items, RouteResolver<T> routeResolver, Task<T, V> task) {
+        this(items, routeResolver, task, null);
+    }
+
+    /**
+     * @param threadFactory 工作线程工厂，为null时使用名为httpclient-batch-N的守护线程
+     */
+    public BatchExecutor(List<T> items, RouteResolver<T> routeResolver, Task<T, V> task, ThreadFactory threadFactory) {
+        this.items = items;
+        this.routeResolver = routeResolver;
+        this.task = task;
+        this.threadFactory = threadFactory != null ? threadFactory : new ThreadFactoryBuilder()
+                .setNameFormat("httpclient-batch-%d")
+                .setDaemon(true)
+                .build();
+        this.routes = new HttpRoute[items.size()];
+        this.results = new Object[items.size()];
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<BatchResult<V>> execute(int maxConcurrency) throws InterruptedIOException {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                routes[i] = routeResolver.routeOf(items.get(i));
+                pending.add(i);
+            } catch (Exception e) {
+                results[i] = BatchResult.failure(e);
+            }
+        }
+        int threads = Math.min(maxConcurrency, pending.size());
+        if (threads > 0) {
+            run(threads);
+        }
+        List<BatchResult<V>> batchResults = new ArrayList<>(results.length);
+        for (Object result : results) {
+            batchResults.add((BatchResult<V>) result);
+        }
+        return batchResults;
+    }
+
+    private void run(int threads) throws InterruptedIOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, threadFactory);
+        try {
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        work();
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException exception = new InterruptedIOException("batch execution interrupted");
+            exception.initCause(e);
+            throw exception;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void work() {
+        int index;
+        while ((index = acquire()) >= 0) {
+            try {
+                results[index] = BatchResult.success(task.execute(items.get(index)));
+            } catch (Exception e) {
+                results[index] = BatchResult.failure(e);
+            } finally {
+                release(routes[index]);
+            }
+        }
+    }
+
+    /**
+     * @return 下一个可执行请求的下标，全部已领取或批量执行被中断时返回-1
+     */
+    private int acquire() {
+        lock.lock();
+        try {
+            while (!pending.isEmpty() && !Thread.currentThread().isInterrupted()) {
+                Iterator<Integer> iterator = pending.iterator();
+                while (iterator.hasNext()) {
+                    Integer index = iterator.next();
+                    HttpRoute route = routes[index];
+                    int running = inFlight.containsKey(route) ? inFlight.get(route) : 0;
+                    if (running < limitOf(route)) {
+                        iterator.remove();
+                        inFlight.put(route, running + 1);
+                        return index;
+                    }
+                }
+                released.await();
+            }
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(HttpRoute route) {
+        lock.lock();
+        try {
+            inFlight.put(route, inFlight.get(route) - 1);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int limitOf(HttpRoute route) {
+        Integer limit = limits.get(route);
+        if (limit == null) {
+            limit = Math.max(1, routeResolver.maxPerRoute(route));
+            limits.put(route, limit);
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,41 @@
+package org.javaq.http.core;
+
+/**
+ * 批量请求中单个请求的结果，成功时持有响应，失败时持有异常
+ */
+public final class BatchResult<V> {
+
+    private final V value;
+
+    private final Exception error;
+
+    private BatchResult(V value, Exception error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <V> BatchResult<V> success(V value) {
+        return new BatchResult<>(value, null);
+    }
+
+    public static <V> BatchResult<V> failure(Exception error) {
+        return new BatchResult<>(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? "BatchResult{value=" + value + '}' : "BatchResult{error=" + error + '}';
+    }
+}
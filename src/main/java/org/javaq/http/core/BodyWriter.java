@@ -0,0 +1,12 @@
+package org.javaq.http.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 直接向连接写出请求报文，配合chunked传输使用，无需在内存中构造完整报文
+ */
+public interface BodyWriter {
+
+    void writeTo(OutputStream out) throws IOException;
+}
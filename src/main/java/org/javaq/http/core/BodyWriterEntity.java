@@ -0,0 +1,50 @@
+package org.javaq.http.core;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 由{@link BodyWriter}在发送时写出报文的实体，长度未知，以chunked方式传输，不可重复发送
+ */
+public class BodyWriterEntity extends AbstractHttpEntity {
+
+    private final BodyWriter writer;
+
+    public BodyWriterEntity(BodyWriter writer, ContentType contentType) {
+        this.writer = writer;
+        if (contentType != null) {
+            setContentType(contentType.toString());
+        }
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        throw new UnsupportedOperationException("BodyWriterEntity can only be written to an output stream");
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        writer.writeTo(outstream);
+        outstream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
@@ -0,0 +1,12 @@
+package org.javaq.http.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 分块消费响应报文，传入的ByteBuffer会被复用，只在回调期间有效
+ */
+public interface ChunkConsumer {
+
+    void onChunk(ByteBuffer chunk) throws IOException;
+}
@@ -0,0 +1,53 @@
+package org.javaq.http.core;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.impl.client.AbstractResponseHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 使用固定大小的缓冲区分块读取响应报文并回调{@link ChunkConsumer}
+ */
+public class ChunkResponseHandler extends AbstractResponseHandler<Void> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final ChunkConsumer consumer;
+
+    private final int chunkSize;
+
+    public ChunkResponseHandler(ChunkConsumer consumer) {
+        this(consumer, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkResponseHandler(ChunkConsumer consumer, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.consumer = consumer;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public Void handleEntity(HttpEntity entity) throws IOException {
+        byte[] buffer = new byte[chunkSize];
+        ByteBuffer chunk = ByteBuffer.wrap(buffer);
+        InputStream content = entity.getContent();
+        try {
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                if (read == 0) {
+                    continue;
+                }
+                chunk.clear();
+                chunk.limit(read);
+                consumer.onChunk(chunk);
+            }
+        } finally {
+            content.close();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package org.javaq.http.core;
+
+import org.apache.http.StatusLine;
+
+import java.io.IOException;
+
+/**
+ * 响应需要重试时由包装的ResponseHandler抛出，使HttpClient释放连接后回到重试循环
+ */
+class RetryableResponseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long delay;
+
+    RetryableResponseException(StatusLine statusLine, long delay) {
+        super("Retryable response: " + statusLine);
+        this.delay = delay;
+    }
+
+    long getDelay() {
+        return delay;
+    }
+}
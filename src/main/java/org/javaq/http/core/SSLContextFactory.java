@@ -1,46 +1,155 @@
 package org.javaq.http.core;
 
 
-import org.apache.commons.io.IOUtils;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.javaq.http.common.logger.Logger;
+import org.javaq.http.common.logger.LoggerFactory;
+import org.javaq.http.core.ssl.CertificateWatcher;
+import org.javaq.http.core.ssl.ReloadableSSLContext;
+import org.javaq.http.core.ssl.TrustStoreLoader;
+import org.javaq.http.core.ssl.TrustedHostMatcher;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
 import javax.net.ssl.*;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.security.cert.Certificate;
-import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 
 
-public class SSLContextFactory implements InitializingBean {
+public class SSLContextFactory implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SSLContextFactory.class);
+
+    /**
+     * 证书文件变化平息后再重建，避免批量替换证书时重复加载
+     */
+    private static final long RELOAD_QUIET_PERIOD = 1000;
+
+    private static final String SESSION_TICKET_PROPERTY = "jdk.tls.client.enableSessionTicketExtension";
 
     private String trustedCertsPath;
     private String trustedStorePassword;
+    private String trustedStoreCachePath;
     private String trustedHosts;
     private String privateKeyPath;
     private String privateKeyPassword;
     private SSLContext sslContext;
     private HostnameVerifier hostnameVerifier;
+    private Integer sessionCacheSize;
+    private Integer sessionTimeout;//seconds
+    private Boolean sessionTicketsEnabled;
+
+    private Boolean reloadEnabled;
+    private CertificateWatcher certificateWatcher;
 
     @Override
     public void afterPropertiesSet() throws Exception {
         createSSLContext();
         createHostnameVerifier();
+        startCertificateWatcher();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (certificateWatcher != null) {
+            certificateWatcher.shutdown();
+        }
     }
 
     private void createSSLContext() throws Exception {
-        sslContext = SSLContext.getInstance("TLS");
-        sslContext.init(createKeyManager(), createTrustManager(), new SecureRandom());
+        checkSessionTickets();
+        SSLContext context = buildSSLContext();
+        sslContext = Boolean.TRUE.equals(reloadEnabled) ? new ReloadableSSLContext(context) : context;
+    }
+
+    private SSLContext buildSSLContext() throws Exception {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(createKeyManager(), createTrustManager(), new SecureRandom());
+        configureSessionCache(context);
+        return context;
+    }
+
+    /**
+     * 重新读取私钥和信任证书并替换SSLContext，新建连接使用新证书，连接池中已建立的连接继续使用直到自然关闭；
+     * 构建失败时保留原SSLContext
+     */
+    public void reload() throws Exception {
+        if (!(sslContext instanceof ReloadableSSLContext)) {
+            throw new IllegalStateException("reloadEnabled is false");
+        }
+        ((ReloadableSSLContext) sslContext).swap(buildSSLContext());
+        LOGGER.info("SSLContext reloaded, privateKeyPath: " + privateKeyPath + ", trustedCertsPath: " + trustedCertsPath);
+    }
+
+    private void startCertificateWatcher() throws IOException {
+        if (!Boolean.TRUE.equals(reloadEnabled)) {
+            return;
+        }
+        List<Path> paths = new ArrayList<>();
+        if (!isNullOrEmpty(privateKeyPath)) {
+            paths.add(Paths.get(privateKeyPath));
+        }
+        if (!isNullOrEmpty(trustedCertsPath)) {
+            paths.add(Paths.get(trustedCertsPath));
+        }
+        if (paths.isEmpty()) {
+            return;
+        }
+        certificateWatcher = new CertificateWatcher(paths, RELOAD_QUIET_PERIOD, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reload();
+                } catch (Exception e) {
+                    throw new RuntimeException("reload SSLContext exception", e);
+                }
+            }
+        });
+        certificateWatcher.start();
+    }
+
+    /**
+     * 客户端会话缓存按对端主机和端口保存，新建连接时可复用会话，跳过完整握手
+     */
+    private void configureSessionCache(SSLContext context) {
+        SSLSessionContext sessionContext = context.getClientSessionContext();
+        if (sessionContext == null) {
+            return;
+        }
+        if (sessionCacheSize != null) {
+            sessionContext.setSessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeout != null) {
+            sessionContext.setSessionTimeout(sessionTimeout);
+        }
+    }
+
+    /**
+     * session ticket由JVM参数jdk.tls.client.enableSessionTicketExtension控制，作用于整个JVM且需在JSSE初始化前设置，
+     * 这里不修改系统属性，只打印实际生效的值，与配置不一致时告警
+     */
+    private void checkSessionTickets() {
+        if (sessionTicketsEnabled == null) {
+            return;
+        }
+        String property = System.getProperty(SESSION_TICKET_PROPERTY);
+        // JDK 13起未设置时默认开启
+        boolean effective = property == null || Boolean.parseBoolean(property);
+        if (effective == sessionTicketsEnabled) {
+            LOGGER.info("TLS session tickets " + (effective ? "enabled" : "disabled") + ", " + SESSION_TICKET_PROPERTY + "=" + property);
+        } else {
+            LOGGER.warn("sslSessionTicketsEnabled=" + sessionTicketsEnabled + " does not take effect, TLS session tickets are "
+                    + (effective ? "enabled" : "disabled") + " in this JVM, start it with -D" + SESSION_TICKET_PROPERTY + "=" + sessionTicketsEnabled);
+        }
     }
 
     private KeyManager[] createKeyManager() throws Exception {
@@ -81,33 +190,8 @@ public class SSLContextFactory implements InitializingBean {
         return trustManagerFactory.getTrustManagers();
     }
 
-    private KeyStore createTrustKeyStore(String filePath) throws KeyStoreException, IOException, NoSuchAlgorithmException, CertificateException {
-        final KeyStore securityStore = KeyStore.getInstance(KeyStore.getDefaultType());
-        securityStore.load(new FileInputStream(getDefaultTrustedFile()), trustedStorePassword.toCharArray());
-        Path path = Paths.get(filePath);
-
-        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                        FileInputStream fileInputStream = null;
-                        try {
-                            CertificateFactory cf = CertificateFactory.getInstance("X.509");
-                            File certificateFile = file.toFile();
-                            fileInputStream = new FileInputStream(certificateFile);
-                            while (fileInputStream.available() > 0) {
-                                Certificate cert = cf.generateCertificate(fileInputStream);
-                                securityStore.setCertificateEntry(file.toString(), cert);
-                            }
-                            return FileVisitResult.CONTINUE;
-                        } catch (CertificateException | KeyStoreException e) {
-                            throw new RuntimeException("add certificate to key store exception");
-                        } finally {
-                            IOUtils.closeQuietly(fileInputStream);
-                        }
-                    }
-                }
-        );
-        return securityStore;
+    private KeyStore createTrustKeyStore(String filePath) throws Exception {
+        return new TrustStoreLoader(getDefaultTrustedFile(), filePath, trustedStorePassword, trustedStoreCachePath).load();
     }
 
     private File getDefaultTrustedFile() {
@@ -133,10 +217,11 @@ public class SSLContextFactory implements InitializingBean {
     }
 
     private void doCreateHostnameVerifier() {
+        final TrustedHostMatcher trustedHostMatcher = new TrustedHostMatcher(trustedHosts);
         hostnameVerifier = new HostnameVerifier() {
             @Override
             public boolean verify(String s, SSLSession sslSession) {
-                return trustedHosts.contains(s);
+                return trustedHostMatcher.matches(s);
             }
         };
     }
@@ -157,6 +242,14 @@ public class SSLContextFactory implements InitializingBean {
         this.trustedStorePassword = trustedStorePassword;
     }
 
+    public String getTrustedStoreCachePath() {
+        return trustedStoreCachePath;
+    }
+
+    public void setTrustedStoreCachePath(String trustedStoreCachePath) {
+        this.trustedStoreCachePath = trustedStoreCachePath;
+    }
+
     public String getTrustedHosts() {
         return trustedHosts;
     }
@@ -181,6 +274,41 @@ public class SSLContextFactory implements InitializingBean {
         this.privateKeyPath = privateKeyPath;
     }
 
+    public Integer getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public void setSessionCacheSize(Integer sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    public Integer getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public void setSessionTimeout(Integer sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    public Boolean getSessionTicketsEnabled() {
+        return sessionTicketsEnabled;
+    }
+
+    /**
+     * 期望的session ticket开关，仅用于与JVM参数核对并打印告警，不会修改JVM全局配置
+     */
+    public void setSessionTicketsEnabled(Boolean sessionTicketsEnabled) {
+        this.sessionTicketsEnabled = sessionTicketsEnabled;
+    }
+
+    public Boolean getReloadEnabled() {
+        return reloadEnabled;
+    }
+
+    public void setReloadEnabled(Boolean reloadEnabled) {
+        this.reloadEnabled = reloadEnabled;
+    }
+
     public String getPrivateKeyPassword() {
         return privateKeyPassword;
     }
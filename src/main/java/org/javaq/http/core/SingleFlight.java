@@ -0,0 +1,106 @@
+package org.javaq.http.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 合并相同key的并发调用：同一时刻只有一个线程真正执行，其余线程等待并共享其结果或异常
+ */
+public class SingleFlight<V> {
+
+    public interface Call<V> {
+        V call() throws IOException;
+    }
+
+    private final ConcurrentMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executionCount = new AtomicLong();
+
+    private final AtomicLong collapsedCount = new AtomicLong();
+
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    public V execute(String key, Call<V> call) throws IOException {
+        return execute(key, 0, call);
+    }
+
+    /**
+     * @param timeout 等待其他线程结果的最长时间，毫秒，小于等于0表示不限；超时或被中断时抛出InterruptedIOException，不影响正在执行的调用
+     */
+    public V execute(String key, long timeout, Call<V> call) throws IOException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            collapsedCount.incrementAndGet();
+            return await(existing, timeout);
+        }
+
+        executionCount.incrementAndGet();
+        try {
+            V result = call.call();
+            future.complete(result);
+            return result;
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private V await(CompletableFuture<V> future, long timeout) throws IOException {
+        try {
+            return timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for coalesced request");
+        } catch (TimeoutException e) {
+            timeoutCount.incrementAndGet();
+            throw new InterruptedIOException("Timed out after " + timeout + "ms waiting for coalesced request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 实际执行的调用次数
+     */
+    public long getExecutionCount() {
+        return executionCount.get();
+    }
+
+    /**
+     * 被合并、未单独执行的调用次数
+     */
+    public long getCollapsedCount() {
+        return collapsedCount.get();
+    }
+
+    /**
+     * 等待其他线程结果超时的调用次数
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,12 @@
+package org.javaq.http.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 以流的方式消费响应报文，方法返回后连接即归还连接池，不需要也不应关闭传入的流
+ */
+public interface StreamConsumer {
+
+    void consume(InputStream content) throws IOException;
+}
@@ -0,0 +1,24 @@
+package org.javaq.http.core;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.impl.client.AbstractResponseHandler;
+
+import java.io.IOException;
+
+/**
+ * 将响应报文直接交给{@link StreamConsumer}，不在内存中缓冲整个报文
+ */
+public class StreamResponseHandler extends AbstractResponseHandler<Void> {
+
+    private final StreamConsumer consumer;
+
+    public StreamResponseHandler(StreamConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public Void handleEntity(HttpEntity entity) throws IOException {
+        consumer.consume(entity.getContent());
+        return null;
+    }
+}
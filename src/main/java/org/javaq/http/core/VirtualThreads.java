@@ -0,0 +1,43 @@
+package org.javaq.http.core;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 以反射方式使用JDK 21的虚拟线程，源码仍保持Java 8兼容；运行在不支持虚拟线程的JDK上时返回null，由调用方回退到平台线程
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @param prefix 线程名前缀，后接自增序号
+     * @return 虚拟线程工厂，不支持时返回null
+     */
+    public static ThreadFactory factory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            // JDK 21之前不存在Thread.ofVirtual，JDK 19/20未开启预览特性时调用会失败
+            return null;
+        }
+    }
+
+    /**
+     * 每个任务一个新线程、不做池化的执行器，线程由threadFactory创建
+     */
+    public static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, threadFactory);
+        } catch (Exception e) {
+            throw new IllegalStateException("Executors.newThreadPerTaskExecutor is not available", e);
+        }
+    }
+}
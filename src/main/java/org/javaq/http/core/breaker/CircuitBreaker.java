@@ -0,0 +1,179 @@
+package org.javaq.http.core.breaker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单个路由的熔断器。每次状态变化替换整个{@link Phase}，状态切换通过CAS完成，关闭时使用新的滑动窗口，
+ * 切换前已放行的请求结果记录到旧的Phase上，不会影响新状态
+ */
+public class CircuitBreaker {
+
+    private final String route;
+
+    private final CircuitBreakerRegistry registry;
+
+    private final AtomicReference<Phase> phase;
+
+    CircuitBreaker(String route, CircuitBreakerRegistry registry) {
+        this.route = route;
+        this.registry = registry;
+        this.phase = new AtomicReference<>(closed());
+    }
+
+    /**
+     * @return 放行时返回绑定当前Phase的许可，请求结束后必须调用{@link Permit#record}，请求被取消时调用{@link Permit#release}；被熔断时返回null
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            Phase current = this.phase.get();
+            switch (current.state) {
+                case CLOSED:
+                    return new Permit(current);
+                case OPEN:
+                    if (current.elapsedMillis() < registry.getWaitDurationInOpen()) {
+                        return null;
+                    }
+                    transition(current, halfOpen());
+                    break;
+                default:
+                    if (current.takePermit()) {
+                        return new Permit(current);
+                    }
+                    // 探测请求未记录结果也未归还许可时，等待时间过后重新放行一批探测请求
+                    if (current.elapsedMillis() < registry.getWaitDurationInOpen()) {
+                        return null;
+                    }
+                    transition(current, halfOpen());
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 结果只计入放行请求时的Phase；该Phase已被替换时只更新旧Phase，状态切换的CAS不会成功
+     */
+    private void record(Phase current, boolean failure, long duration) {
+        boolean slow = duration >= TimeUnit.MILLISECONDS.toNanos(registry.getSlowCallDuration());
+        if (current.state == CircuitState.CLOSED) {
+            current.window.record(failure, slow);
+            if (current.window.getCalls() >= registry.getMinimumCalls()
+                    && (current.window.getFailureRate() >= registry.getFailureRateThreshold()
+                    || current.window.getSlowCallRate() >= registry.getSlowCallRateThreshold())) {
+                transition(current, open());
+            }
+        } else if (current.state == CircuitState.HALF_OPEN) {
+            if (failure || slow) {
+                transition(current, open());
+            } else if (current.successes.incrementAndGet() >= registry.getPermittedCallsInHalfOpen()) {
+                transition(current, closed());
+            }
+        }
+    }
+
+    private void transition(Phase from, Phase to) {
+        if (this.phase.compareAndSet(from, to)) {
+            registry.fireStateTransition(route, from.state, to.state);
+        }
+    }
+
+    private Phase closed() {
+        return new Phase(CircuitState.CLOSED, new SlidingWindow(registry.getWindowSize()), 0);
+    }
+
+    private Phase open() {
+        return new Phase(CircuitState.OPEN, null, 0);
+    }
+
+    private Phase halfOpen() {
+        return new Phase(CircuitState.HALF_OPEN, null, registry.getPermittedCallsInHalfOpen());
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public CircuitState getState() {
+        return phase.get().state;
+    }
+
+    /**
+     * 关闭状态下滑动窗口内的失败率百分比，其他状态返回-1
+     */
+    public float getFailureRate() {
+        SlidingWindow window = phase.get().window;
+        return window != null ? window.getFailureRate() : -1;
+    }
+
+    public float getSlowCallRate() {
+        SlidingWindow window = phase.get().window;
+        return window != null ? window.getSlowCallRate() : -1;
+    }
+
+    public int getBufferedCalls() {
+        SlidingWindow window = phase.get().window;
+        return window != null ? window.getCalls() : 0;
+    }
+
+    /**
+     * 一次放行的许可，记住放行时所处的Phase
+     */
+    public final class Permit {
+        private final Phase admitted;
+
+        private Permit(Phase admitted) {
+            this.admitted = admitted;
+        }
+
+        /**
+         * @param failure  是否失败：网络异常或5xx响应
+         * @param duration 请求耗时，纳秒
+         */
+        public void record(boolean failure, long duration) {
+            CircuitBreaker.this.record(admitted, failure, duration);
+        }
+
+        /**
+         * 请求被取消、没有结果时归还许可，不计入统计；半开状态下归还的探测名额可以再放行一个请求
+         */
+        public void release() {
+            if (admitted.state == CircuitState.HALF_OPEN) {
+                admitted.permits.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class Phase {
+        private final CircuitState state;
+        private final SlidingWindow window;
+        private final AtomicInteger permits;
+        private final AtomicInteger successes = new AtomicInteger();
+        private final long since = System.nanoTime();
+
+        private Phase(CircuitState state, SlidingWindow window, int permits) {
+            this.state = state;
+            this.window = window;
+            this.permits = new AtomicInteger(permits);
+        }
+
+        /**
+         * 名额用完后不再递减，被拒绝的请求不会使归还的名额失效
+         */
+        private boolean takePermit() {
+            while (true) {
+                int available = permits.get();
+                if (available <= 0) {
+                    return false;
+                }
+                if (permits.compareAndSet(available, available - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.javaq.http.core.breaker;
+
+/**
+ * 熔断器状态变化监听，在触发变化的请求线程上同步回调，实现应尽快返回
+ */
+public interface CircuitBreakerListener {
+
+    void onStateTransition(String route, CircuitState from, CircuitState to);
+}
@@ -0,0 +1,23 @@
+package org.javaq.http.core.breaker;
+
+import java.util.List;
+
+/**
+ * 各路由熔断器的状态，状态变化同时以JMX通知发布
+ */
+public interface CircuitBreakerMXBean {
+
+    /**
+     * 当前处于熔断或半开状态的路由数
+     */
+    int getOpenCircuits();
+
+    /**
+     * 因熔断直接失败的请求数
+     */
+    long getRejectedCalls();
+
+    long getStateTransitions();
+
+    List<CircuitBreakerStats> getCircuitBreakerStats();
+}
@@ -0,0 +1,22 @@
+package org.javaq.http.core.breaker;
+
+import java.io.IOException;
+
+/**
+ * 路由处于熔断状态时请求直接失败，未发出网络请求
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String route;
+
+    public CircuitBreakerOpenException(String route) {
+        super("Circuit breaker is open for " + route);
+        this.route = route;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+}
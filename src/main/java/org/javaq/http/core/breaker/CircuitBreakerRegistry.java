@@ -0,0 +1,210 @@
+package org.javaq.http.core.breaker;
+
+import org.javaq.http.common.logger.Logger;
+import org.javaq.http.common.logger.LoggerFactory;
+import org.javaq.http.core.pool.Routes;
+
+import javax.management.MBeanNotificationInfo;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按路由创建熔断器并保存熔断参数；状态变化回调{@link CircuitBreakerListener}、记录日志并发送JMX通知
+ */
+public class CircuitBreakerRegistry extends NotificationBroadcasterSupport implements CircuitBreakerMXBean {
+
+    public static final String STATE_TRANSITION_NOTIFICATION = "org.javaq.http.circuitbreaker.transition";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreakerRegistry.class);
+
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    private final AtomicLong stateTransitions = new AtomicLong();
+
+    private float failureRateThreshold = 50;
+
+    private float slowCallRateThreshold = 100;
+
+    private long slowCallDuration = 3000;//milliseconds
+
+    private int windowSize = 100;
+
+    private int minimumCalls = 20;
+
+    private long waitDurationInOpen = 5000;//milliseconds
+
+    private int permittedCallsInHalfOpen = 5;
+
+    private List<CircuitBreakerListener> listeners;
+
+    public CircuitBreakerRegistry() {
+        super(new MBeanNotificationInfo(new String[]{STATE_TRANSITION_NOTIFICATION}, Notification.class.getName(),
+                "Circuit breaker state transition"));
+    }
+
+    public CircuitBreaker of(URI uri) {
+        String route = Routes.name(uri);
+        CircuitBreaker circuitBreaker = circuitBreakers.get(route);
+        if (circuitBreaker == null) {
+            CircuitBreaker created = new CircuitBreaker(route, this);
+            circuitBreaker = circuitBreakers.putIfAbsent(route, created);
+            if (circuitBreaker == null) {
+                circuitBreaker = created;
+            }
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * 请求被熔断时由调用方计数
+     */
+    public void recordRejected() {
+        rejectedCalls.incrementAndGet();
+    }
+
+    void fireStateTransition(String route, CircuitState from, CircuitState to) {
+        long sequence = stateTransitions.incrementAndGet();
+        if (to == CircuitState.OPEN) {
+            LOGGER.warn("Circuit breaker of " + route + " transitioned from " + from + " to " + to);
+        } else {
+            LOGGER.info("Circuit breaker of " + route + " transitioned from " + from + " to " + to);
+        }
+        if (listeners != null) {
+            for (CircuitBreakerListener listener : listeners) {
+                try {
+                    listener.onStateTransition(route, from, to);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Circuit breaker listener " + listener + " failed", e);
+                }
+            }
+        }
+        Notification notification = new Notification(STATE_TRANSITION_NOTIFICATION, this, sequence,
+                route + " " + from + " -> " + to);
+        notification.setUserData(to.name());
+        sendNotification(notification);
+    }
+
+    @Override
+    public int getOpenCircuits() {
+        int count = 0;
+        for (CircuitBreaker circuitBreaker : circuitBreakers.values()) {
+            if (circuitBreaker.getState() != CircuitState.CLOSED) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    @Override
+    public long getStateTransitions() {
+        return stateTransitions.get();
+    }
+
+    @Override
+    public List<CircuitBreakerStats> getCircuitBreakerStats() {
+        List<CircuitBreakerStats> stats = new ArrayList<>(circuitBreakers.size());
+        for (CircuitBreaker circuitBreaker : circuitBreakers.values()) {
+            stats.add(new CircuitBreakerStats(circuitBreaker.getRoute(), circuitBreaker.getState().name(),
+                    circuitBreaker.getFailureRate(), circuitBreaker.getSlowCallRate(), circuitBreaker.getBufferedCalls()));
+        }
+        return stats;
+    }
+
+    public float getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * @param failureRateThreshold 失败率百分比达到该值时熔断，默认50
+     */
+    public void setFailureRateThreshold(float failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public float getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * @param slowCallRateThreshold 慢调用百分比达到该值时熔断，默认100
+     */
+    public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    /**
+     * @param slowCallDuration 耗时不小于该毫秒数的请求视为慢调用，默认3000
+     */
+    public void setSlowCallDuration(long slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @param windowSize 统计最近多少次请求，默认100
+     */
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * @param minimumCalls 窗口内请求数达到该值后才计算比例，默认20
+     */
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public long getWaitDurationInOpen() {
+        return waitDurationInOpen;
+    }
+
+    /**
+     * @param waitDurationInOpen 熔断持续的毫秒数，之后进入半开状态，默认5000
+     */
+    public void setWaitDurationInOpen(long waitDurationInOpen) {
+        this.waitDurationInOpen = waitDurationInOpen;
+    }
+
+    public int getPermittedCallsInHalfOpen() {
+        return permittedCallsInHalfOpen;
+    }
+
+    /**
+     * @param permittedCallsInHalfOpen 半开状态放行的探测请求数，默认5
+     */
+    public void setPermittedCallsInHalfOpen(int permittedCallsInHalfOpen) {
+        this.permittedCallsInHalfOpen = permittedCallsInHalfOpen;
+    }
+
+    public List<CircuitBreakerListener> getListeners() {
+        return listeners;
+    }
+
+    public void setListeners(List<CircuitBreakerListener> listeners) {
+        this.listeners = listeners;
+    }
+}
@@ -0,0 +1,59 @@
+package org.javaq.http.core.breaker;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 单个路由的熔断器状态
+ */
+public class CircuitBreakerStats {
+
+    private final String route;
+
+    private final String state;
+
+    private final float failureRate;
+
+    private final float slowCallRate;
+
+    private final int bufferedCalls;
+
+    @ConstructorProperties({"route", "state", "failureRate", "slowCallRate", "bufferedCalls"})
+    public CircuitBreakerStats(String route, String state, float failureRate, float slowCallRate, int bufferedCalls) {
+        this.route = route;
+        this.state = state;
+        this.failureRate = failureRate;
+        this.slowCallRate = slowCallRate;
+        this.bufferedCalls = bufferedCalls;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public float getFailureRate() {
+        return failureRate;
+    }
+
+    public float getSlowCallRate() {
+        return slowCallRate;
+    }
+
+    public int getBufferedCalls() {
+        return bufferedCalls;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerStats{" +
+                "route='" + route + '\'' +
+                ", state=" + state +
+                ", failureRate=" + failureRate +
+                ", slowCallRate=" + slowCallRate +
+                ", bufferedCalls=" + bufferedCalls +
+                '}';
+    }
+}
@@ -0,0 +1,19 @@
+package org.javaq.http.core.breaker;
+
+/**
+ * 熔断器状态
+ */
+public enum CircuitState {
+    /**
+     * 正常放行，统计失败率和慢调用率
+     */
+    CLOSED,
+    /**
+     * 熔断，请求直接失败
+     */
+    OPEN,
+    /**
+     * 放行少量探测请求，全部成功后关闭，任一失败重新熔断
+     */
+    HALF_OPEN
+}
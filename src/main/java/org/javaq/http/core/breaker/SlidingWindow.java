@@ -0,0 +1,72 @@
+package org.javaq.http.core.breaker;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 最近size次调用结果的环形窗口，写入新结果时覆盖最旧的结果并按差值更新计数，全程无锁
+ */
+class SlidingWindow {
+
+    private static final int RECORDED = 1;
+
+    private static final int FAILURE = 2;
+
+    private static final int SLOW = 4;
+
+    private final AtomicIntegerArray outcomes;
+
+    private final AtomicLong cursor = new AtomicLong();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final AtomicInteger slowCalls = new AtomicInteger();
+
+    SlidingWindow(int size) {
+        this.outcomes = new AtomicIntegerArray(size);
+    }
+
+    void record(boolean failure, boolean slow) {
+        int outcome = RECORDED | (failure ? FAILURE : 0) | (slow ? SLOW : 0);
+        int slot = (int) (cursor.getAndIncrement() % outcomes.length());
+        int evicted = outcomes.getAndSet(slot, outcome);
+        if (evicted == 0) {
+            calls.incrementAndGet();
+        }
+        int failureDelta = bit(outcome, FAILURE) - bit(evicted, FAILURE);
+        if (failureDelta != 0) {
+            failures.addAndGet(failureDelta);
+        }
+        int slowDelta = bit(outcome, SLOW) - bit(evicted, SLOW);
+        if (slowDelta != 0) {
+            slowCalls.addAndGet(slowDelta);
+        }
+    }
+
+    int getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * 失败率百分比，窗口为空时返回0
+     */
+    float getFailureRate() {
+        return rate(failures.get());
+    }
+
+    float getSlowCallRate() {
+        return rate(slowCalls.get());
+    }
+
+    private float rate(int count) {
+        int total = calls.get();
+        return total == 0 ? 0 : count * 100f / total;
+    }
+
+    private static int bit(int outcome, int flag) {
+        return (outcome & flag) != 0 ? 1 : 0;
+    }
+}
@@ -0,0 +1,17 @@
+package org.javaq.http.core.cache;
+
+/**
+ * 响应缓存的命中、重新验证和淘汰情况
+ */
+public interface HttpCacheMXBean {
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getValidatedCount();
+
+    long getEvictionCount();
+
+    long getEntryCount();
+}
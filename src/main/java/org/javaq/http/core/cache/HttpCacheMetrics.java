@@ -0,0 +1,84 @@
+package org.javaq.http.core.cache;
+
+import org.apache.http.client.cache.CacheResponseStatus;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 响应缓存的命中统计
+ */
+public class HttpCacheMetrics implements HttpCacheMXBean {
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong validatedCount = new AtomicLong();
+
+    private final WeightedHttpCacheStorage storage;
+
+    public HttpCacheMetrics(WeightedHttpCacheStorage storage) {
+        this.storage = storage;
+    }
+
+    public void record(CacheResponseStatus status) {
+        if (status == null) {
+            return;
+        }
+        switch (status) {
+            case CACHE_HIT:
+                hitCount.incrementAndGet();
+                break;
+            case VALIDATED:
+                validatedCount.incrementAndGet();
+                break;
+            case CACHE_MISS:
+                missCount.incrementAndGet();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 未访问后端、直接由缓存返回的次数
+     */
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 经If-None-Match/If-Modified-Since重新验证后由缓存返回的次数
+     */
+    @Override
+    public long getValidatedCount() {
+        return validatedCount.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return storage.evictionCount();
+    }
+
+    @Override
+    public long getEntryCount() {
+        return storage.size();
+    }
+
+    @Override
+    public String toString() {
+        return "HttpCacheMetrics{" +
+                "hitCount=" + getHitCount() +
+                ", missCount=" + getMissCount() +
+                ", validatedCount=" + getValidatedCount() +
+                ", evictionCount=" + getEvictionCount() +
+                ", entryCount=" + getEntryCount() +
+                '}';
+    }
+}
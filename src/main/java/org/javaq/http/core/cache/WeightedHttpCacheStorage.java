@@ -0,0 +1,96 @@
+package org.javaq.http.core.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.apache.http.Header;
+import org.apache.http.client.cache.HttpCacheEntry;
+import org.apache.http.client.cache.HttpCacheStorage;
+import org.apache.http.client.cache.HttpCacheUpdateCallback;
+import org.apache.http.client.cache.HttpCacheUpdateException;
+import org.apache.http.client.cache.Resource;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按字节数限制容量的内存缓存，超出容量时按LRU淘汰
+ */
+public class WeightedHttpCacheStorage implements HttpCacheStorage {
+
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private static final int MAX_UPDATE_RETRIES = 3;
+
+    private final Cache<String, HttpCacheEntry> entries;
+
+    public WeightedHttpCacheStorage(long maxBytes) {
+        this.entries = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(new Weigher<String, HttpCacheEntry>() {
+                    @Override
+                    public int weigh(String key, HttpCacheEntry entry) {
+                        long size = ENTRY_OVERHEAD + key.length() * 2L + estimateSize(entry);
+                        return (int) Math.min(size, Integer.MAX_VALUE);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void putEntry(String key, HttpCacheEntry entry) throws IOException {
+        entries.put(key, entry);
+    }
+
+    @Override
+    public HttpCacheEntry getEntry(String key) throws IOException {
+        return entries.getIfPresent(key);
+    }
+
+    @Override
+    public void removeEntry(String key) throws IOException {
+        entries.invalidate(key);
+    }
+
+    @Override
+    public void updateEntry(String key, HttpCacheUpdateCallback callback) throws IOException, HttpCacheUpdateException {
+        ConcurrentMap<String, HttpCacheEntry> map = entries.asMap();
+        for (int i = 0; i < MAX_UPDATE_RETRIES; i++) {
+            HttpCacheEntry existing = map.get(key);
+            HttpCacheEntry updated = callback.update(existing);
+            if (existing == null) {
+                if (updated == null || map.putIfAbsent(key, updated) == null) {
+                    return;
+                }
+            } else if (updated == null) {
+                if (map.remove(key, existing)) {
+                    return;
+                }
+            } else if (map.replace(key, existing, updated)) {
+                return;
+            }
+        }
+        throw new HttpCacheUpdateException("Failed to update cache entry " + key + " after " + MAX_UPDATE_RETRIES + " retries");
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    public long evictionCount() {
+        return entries.stats().evictionCount();
+    }
+
+    private static long estimateSize(HttpCacheEntry entry) {
+        long size = 0;
+        Resource resource = entry.getResource();
+        if (resource != null) {
+            size += resource.length();
+        }
+        for (Header header : entry.getAllHeaders()) {
+            size += (header.getName().length() + header.getValue().length()) * 2L;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,75 @@
+package org.javaq.http.core.compress;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HTTP;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 发送时边写边压缩的实体，不在内存中保存压缩后的完整副本，以chunked方式传输
+ */
+public class CompressingEntity extends HttpEntityWrapper {
+
+    private final Compression compression;
+
+    public CompressingEntity(HttpEntity entity, Compression compression) {
+        super(entity);
+        this.compression = compression;
+    }
+
+    @Override
+    public Header getContentEncoding() {
+        return new BasicHeader(HTTP.CONTENT_ENCODING, compression.getEncoding());
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        throw new UnsupportedOperationException("CompressingEntity can only be written to an output stream");
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        OutputStream compressed = compression.wrap(new NonClosingOutputStream(outstream));
+        try {
+            wrappedEntity.writeTo(compressed);
+        } finally {
+            compressed.close();
+        }
+    }
+
+    /**
+     * 关闭压缩流时释放Deflater并写出尾部，但不关闭底层连接的输出流
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.javaq.http.core.compress;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 请求报文压缩算法
+ */
+public enum Compression {
+
+    NONE(null) {
+        @Override
+        public OutputStream wrap(OutputStream out) {
+            return out;
+        }
+    },
+
+    GZIP("gzip") {
+        @Override
+        public OutputStream wrap(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+    },
+
+    DEFLATE("deflate") {
+        @Override
+        public OutputStream wrap(OutputStream out) {
+            return new DeflaterOutputStream(out, new Deflater(), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 表示报文已压缩的Content-Encoding取值；部分调用方把字符集放在Content-Encoding中，不能视为已压缩
+     */
+    private static final Set<String> CONTENT_CODINGS = new HashSet<>(Arrays.asList(
+            "gzip", "x-gzip", "deflate", "br", "compress", "x-compress", "zstd"));
+
+    private final String encoding;
+
+    Compression(String encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Content-Encoding头的取值
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public abstract OutputStream wrap(OutputStream out) throws IOException;
+
+    /**
+     * 按名称解析，忽略大小写，null或空串返回{@link #NONE}
+     */
+    public static Compression of(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return NONE;
+        }
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    /**
+     * 实体的Content-Encoding中是否含有压缩编码
+     */
+    public static boolean isEncoded(HttpEntity entity) {
+        Header contentEncoding = entity.getContentEncoding();
+        if (contentEncoding == null || contentEncoding.getValue() == null) {
+            return false;
+        }
+        for (String coding : contentEncoding.getValue().split(",")) {
+            if (CONTENT_CODINGS.contains(coding.trim().toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,353 @@
+package org.javaq.http.core.dns;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.javaq.http.common.logger.Logger;
+import org.javaq.http.common.logger.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存DNS解析结果：结果最多使用ttl毫秒，超过refreshAfter后在后台重新解析，刷新失败时继续使用原结果直到过期；
+ * 启动后最近使用过的主机由后台线程定期刷新，预热后请求不会阻塞在DNS解析上；刷新在独立的小线程池中执行，个别主机解析缓慢不会拖住其他主机的刷新。
+ * 每次返回时轮换地址顺序，新连接分散到所有地址，连接管理器在首个地址不可达时依次尝试其余地址。
+ * 默认的delegate使用InetAddress，其结果还受JVM的networkaddress.cache.ttl缓存影响。
+ * 可由多个客户端共享，后台线程在最后一个使用它的客户端关闭或本bean销毁时停止
+ */
+public class CachingDnsResolver implements DnsResolver, DnsCacheMXBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingDnsResolver.class);
+
+    private DnsResolver delegate = SystemDefaultDnsResolver.INSTANCE;
+
+    private long ttl = 60000;//milliseconds
+
+    private long refreshAfter = 30000;//milliseconds
+
+    private int refreshThreads = 2;
+
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private ExecutorService refreshExecutor;
+
+    private int users;
+
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final AtomicLong lookupFailures = new AtomicLong();
+
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private final AtomicLong lookupNanos = new AtomicLong();
+
+    private final AtomicLong maxLookupNanos = new AtomicLong();
+
+    /**
+     * 启动后台刷新线程，未启动时只在请求线程上解析；refreshAfter不小于ttl时调整为ttl的一半
+     */
+    public synchronized void start() {
+        this.users++;
+        if (this.scheduler != null) {
+            return;
+        }
+        if (this.refreshAfter <= 0 || this.refreshAfter >= this.ttl) {
+            LOGGER.warn("DNS refreshAfter " + this.refreshAfter + " should be positive and less than ttl "
+                    + this.ttl + ", use " + this.ttl / 2 + " instead");
+            this.refreshAfter = this.ttl / 2;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("httpclient-dns-sweep")
+                .setDaemon(true)
+                .build());
+        this.refreshExecutor = Executors.newFixedThreadPool(Math.max(1, this.refreshThreads), new ThreadFactoryBuilder()
+                .setNameFormat("httpclient-dns-refresh-%d")
+                .setDaemon(true)
+                .build());
+        // 在过期前至少检查两次，保证使用中的主机在过期前完成刷新
+        long period = Math.max(100, (this.ttl - this.refreshAfter) / 2);
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sweep();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 与start成对调用，最后一个使用方释放后停止后台线程
+     */
+    public synchronized void release() {
+        if (this.users > 0 && --this.users == 0) {
+            shutdown();
+        }
+    }
+
+    public synchronized void shutdown() {
+        this.users = 0;
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+            this.refreshExecutor.shutdownNow();
+            this.refreshExecutor = null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        shutdown();
+    }
+
+    public synchronized boolean isStarted() {
+        return this.scheduler != null;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        String key = host.toLowerCase(Locale.ROOT);
+        long now = System.nanoTime();
+        Entry entry = cache.get(key);
+        if (entry != null && now - entry.resolvedAt < TimeUnit.MILLISECONDS.toNanos(this.ttl)) {
+            cacheHits.incrementAndGet();
+            entry.lastAccess = now;
+            if (now - entry.resolvedAt >= TimeUnit.MILLISECONDS.toNanos(this.refreshAfter)) {
+                refreshAsync(key, entry);
+            }
+            return entry.next();
+        }
+        cacheMisses.incrementAndGet();
+        return lookup(key, now).next();
+    }
+
+    private Entry lookup(String host, long lastAccess) throws UnknownHostException {
+        long start = System.nanoTime();
+        InetAddress[] addresses;
+        try {
+            addresses = delegate.resolve(host);
+        } catch (UnknownHostException e) {
+            lookupFailures.incrementAndGet();
+            throw e;
+        } finally {
+            recordLookup(System.nanoTime() - start);
+        }
+        if (addresses == null || addresses.length == 0) {
+            lookupFailures.incrementAndGet();
+            throw new UnknownHostException(host);
+        }
+        Entry entry = new Entry(addresses, lastAccess);
+        cache.put(host, entry);
+        return entry;
+    }
+
+    private void refreshAsync(final String host, final Entry entry) {
+        ExecutorService executor = this.refreshExecutor;
+        if (executor == null || !entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    refresh(host, entry);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void refresh(String host, Entry entry) {
+        try {
+            lookup(host, entry.lastAccess);
+            refreshes.incrementAndGet();
+        } catch (UnknownHostException | RuntimeException e) {
+            // 保留原结果，之后的访问或定期检查会再次尝试
+            entry.refreshing.set(false);
+            LOGGER.warn("Fail to refresh DNS of " + host + ", keep using " + Arrays.toString(entry.addresses), e);
+        }
+    }
+
+    /**
+     * 移除超过ttl未使用的主机，刷新即将过期的主机
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Entry> cached : cache.entrySet()) {
+            Entry entry = cached.getValue();
+            if (now - entry.lastAccess > TimeUnit.MILLISECONDS.toNanos(this.ttl)) {
+                cache.remove(cached.getKey(), entry);
+            } else if (now - entry.resolvedAt >= TimeUnit.MILLISECONDS.toNanos(this.refreshAfter)) {
+                refreshAsync(cached.getKey(), entry);
+            }
+        }
+    }
+
+    private void recordLookup(long nanos) {
+        lookups.incrementAndGet();
+        lookupNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxLookupNanos.get()) && !maxLookupNanos.compareAndSet(max, nanos)) {
+        }
+    }
+
+    /**
+     * 缓存的主机及其地址，用于排查问题
+     */
+    public Map<String, InetAddress[]> getCachedAddresses() {
+        Map<String, InetAddress[]> addresses = new TreeMap<>();
+        for (Map.Entry<String, Entry> cached : cache.entrySet()) {
+            addresses.put(cached.getKey(), cached.getValue().addresses.clone());
+        }
+        return Collections.unmodifiableMap(addresses);
+    }
+
+    @Override
+    public int getCachedHosts() {
+        return cache.size();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = cacheHits.get();
+        long total = hits + cacheMisses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    @Override
+    public long getLookupFailures() {
+        return lookupFailures.get();
+    }
+
+    @Override
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    @Override
+    public double getAverageLookupMillis() {
+        long count = lookups.get();
+        return count == 0 ? 0 : (double) lookupNanos.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getMaxLookupMillis() {
+        return (double) maxLookupNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public DnsResolver getDelegate() {
+        return delegate;
+    }
+
+    public void setDelegate(DnsResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * @param ttl 解析结果最多使用的毫秒数，超过后请求线程重新解析，默认60000
+     */
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    public long getRefreshAfter() {
+        return refreshAfter;
+    }
+
+    /**
+     * @param refreshAfter 解析结果超过该毫秒数后在后台刷新，应小于ttl，否则启动时调整为ttl的一半，默认30000
+     */
+    public void setRefreshAfter(long refreshAfter) {
+        this.refreshAfter = refreshAfter;
+    }
+
+    public int getRefreshThreads() {
+        return refreshThreads;
+    }
+
+    /**
+     * @param refreshThreads 后台刷新的线程数，默认2，start前设置有效
+     */
+    public void setRefreshThreads(int refreshThreads) {
+        this.refreshThreads = refreshThreads;
+    }
+
+    @Override
+    public String toString() {
+        return "CachingDnsResolver{" +
+                "ttl=" + ttl +
+                ", refreshAfter=" + refreshAfter +
+                ", cachedHosts=" + getCachedHosts() +
+                '}';
+    }
+
+    /**
+     * 一次解析的结果，刷新时整体替换
+     */
+    private static final class Entry {
+        private final InetAddress[] addresses;
+        private final long resolvedAt = System.nanoTime();
+        private final AtomicInteger cursor;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long lastAccess;
+
+        private Entry(InetAddress[] addresses, long lastAccess) {
+            this.addresses = addresses.clone();
+            this.lastAccess = lastAccess;
+            // 从随机位置开始轮换，避免多个客户端同时涌向第一个地址
+            this.cursor = new AtomicInteger(ThreadLocalRandom.current().nextInt(addresses.length));
+        }
+
+        private InetAddress[] next() {
+            int length = addresses.length;
+            InetAddress[] result = new InetAddress[length];
+            int offset = (cursor.getAndIncrement() & Integer.MAX_VALUE) % length;
+            for (int i = 0; i < length; i++) {
+                result[i] = addresses[(offset + i) % length];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.javaq.http.core.dns;
+
+/**
+ * DNS缓存的命中情况和实际解析耗时
+ */
+public interface DnsCacheMXBean {
+
+    int getCachedHosts();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    double getHitRatio();
+
+    /**
+     * 实际发起的解析次数，包括后台刷新
+     */
+    long getLookups();
+
+    long getLookupFailures();
+
+    /**
+     * 后台刷新成功的次数
+     */
+    long getRefreshes();
+
+    double getAverageLookupMillis();
+
+    double getMaxLookupMillis();
+}
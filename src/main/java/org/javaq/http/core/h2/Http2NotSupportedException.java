@@ -0,0 +1,22 @@
+package org.javaq.http.core.h2;
+
+import java.io.IOException;
+
+/**
+ * 路由在HTTP/2连接上从未成功过，且连接被关闭或协议出错，判断服务端只支持HTTP/1.1；该路由此后改用HTTP/1.1传输
+ */
+public class Http2NotSupportedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String route;
+
+    public Http2NotSupportedException(String route, Throwable cause) {
+        super("HTTP/2 is not supported by " + route, cause);
+        this.route = route;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+}
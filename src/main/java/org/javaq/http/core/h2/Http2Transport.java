@@ -0,0 +1,307 @@
+package org.javaq.http.core.h2;
+
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ConnectionClosedException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.ProtocolException;
+import org.apache.hc.core5.http2.H2ConnectionException;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.Cancellable;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.javaq.http.core.pool.Routes;
+import org.javaq.http.core.ssl.TlsHandshakeMetrics;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 基于HttpClient 5的HTTP/2传输：每个路由一个连接，并发请求以多路复用的stream在同一连接上传输。
+ * 对外仍使用HttpClient 4的请求和响应类型，请求报文和响应报文在内存中完整缓冲。
+ * 从未在HTTP/2上成功过的路由首次建连即被关闭或协议出错时，记为只支持HTTP/1.1，由调用方改用HTTP/1.1传输
+ */
+public class Http2Transport implements Closeable {
+
+    private static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+
+    /**
+     * HTTP/2禁止的连接级请求头，Host由:authority伪头替代，Content-Length由报文重新计算
+     */
+    private static final Set<String> EXCLUDED_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade", "te", "host", "content-length"));
+
+    /**
+     * 没有请求报文的方法，与HttpClient 4的DefaultHttpRequestRetryHandler一样视为幂等
+     */
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<>(Arrays.asList(
+            "GET", "HEAD", "DELETE", "OPTIONS", "TRACE"));
+
+    private final CloseableHttpAsyncClient client;
+
+    private final Set<String> http2Routes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final Set<String> http1Routes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * @param sslContext    https使用的SSLContext
+     * @param verifier      https主机名校验
+     * @param ioThreadCount I/O线程数，为null时使用默认值
+     * @param retryCount    I/O异常重试次数，0表示不重试
+     * @param requestSentRetryEnabled 请求已发出时非幂等请求是否也重试
+     * @param maxIdleTime   空闲超过该时间的连接会被关闭，毫秒，小于等于0表示不关闭
+     * @param dnsResolver   DNS解析器，为null时使用系统解析
+     * @param handshakeMetrics TLS握手统计，为null时不统计
+     */
+    public Http2Transport(SSLContext sslContext, HostnameVerifier verifier, Integer ioThreadCount, int retryCount,
+                          boolean requestSentRetryEnabled, long maxIdleTime, final DnsResolver dnsResolver,
+                          TlsHandshakeMetrics handshakeMetrics) {
+        IOReactorConfig.Builder ioReactorConfig = IOReactorConfig.custom().setTcpNoDelay(true);
+        if (ioThreadCount != null) {
+            ioReactorConfig.setIoThreadCount(ioThreadCount);
+        }
+        H2AsyncClientBuilder builder = HttpAsyncClients.customHttp2()
+                .setIOReactorConfig(ioReactorConfig.build())
+                .setH2Config(H2Config.custom().setPushEnabled(false).build())
+                .setTlsStrategy(handshakeMetrics != null && sslContext != null
+                        ? new MonitoredClientTlsStrategy(sslContext, verifier, handshakeMetrics)
+                        : ClientTlsStrategyBuilder.create()
+                        .setSslContext(sslContext)
+                        .setHostnameVerifier(verifier)
+                        .build());
+        if (retryCount > 0) {
+            builder.setRetryStrategy(new IoRetryStrategy(retryCount, requestSentRetryEnabled));
+        } else {
+            builder.disableAutomaticRetries();
+        }
+        if (maxIdleTime > 0) {
+            builder.evictIdleConnections(TimeValue.ofMilliseconds(maxIdleTime));
+        }
+        if (dnsResolver != null) {
+            builder.setDnsResolver(new org.apache.hc.client5.http.DnsResolver() {
+                @Override
+                public InetAddress[] resolve(String host) throws UnknownHostException {
+                    return dnsResolver.resolve(host);
+                }
+
+                @Override
+                public String resolveCanonicalHostname(String host) throws UnknownHostException {
+                    return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+                }
+            });
+        }
+        this.client = builder.build();
+        this.client.start();
+    }
+
+    /**
+     * 阻塞执行请求；调用request.abort()会取消对应的stream，等待中的线程抛出RequestAbortedException
+     */
+    public HttpResponse execute(HttpRequestBase request) throws IOException {
+        if (request.isAborted()) {
+            throw new RequestAbortedException("HTTP/2 request aborted");
+        }
+        final Future<HttpResponse> future = executeAsync(request);
+        request.setCancellable(new Cancellable() {
+            @Override
+            public boolean cancel() {
+                return future.cancel(true);
+            }
+        });
+        // 已中止的请求不会再调用新设置的Cancellable
+        if (request.isAborted()) {
+            future.cancel(true);
+        }
+        try {
+            return future.get();
+        } catch (CancellationException e) {
+            RequestAbortedException exception = new RequestAbortedException("HTTP/2 request aborted");
+            exception.initCause(e);
+            throw exception;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            InterruptedIOException exception = new InterruptedIOException("HTTP/2 request interrupted");
+            exception.initCause(e);
+            throw exception;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 取消返回的future会重置对应的stream，不影响同一连接上的其它请求
+     */
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequestBase request) throws IOException {
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        final String route = Routes.name(request.getURI());
+        final Future<SimpleHttpResponse> exchange = client.execute(toH2Request(request), new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                http2Routes.add(route);
+                result.complete(toResponse(response));
+            }
+
+            @Override
+            public void failed(Exception e) {
+                if (!http2Routes.contains(route) && isProtocolMismatch(e)) {
+                    http1Routes.add(route);
+                    result.completeExceptionally(new Http2NotSupportedException(route, e));
+                } else {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return 该地址所在路由是否仍使用HTTP/2，已判断为只支持HTTP/1.1时返回false
+     */
+    public boolean isEnabledFor(URI uri) {
+        return http1Routes.isEmpty() || !http1Routes.contains(Routes.name(uri));
+    }
+
+    /**
+     * 只支持HTTP/1.1的服务端收到HTTP/2连接前言后关闭连接或返回无法解析的报文
+     */
+    private static boolean isProtocolMismatch(Exception e) {
+        return e instanceof ConnectionClosedException || e instanceof H2ConnectionException || e instanceof ProtocolException;
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    private SimpleHttpRequest toH2Request(HttpRequestBase request) throws IOException {
+        SimpleHttpRequest h2Request = SimpleHttpRequest.create(request.getMethod(), request.getURI());
+        for (Header header : request.getAllHeaders()) {
+            if (!EXCLUDED_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                h2Request.addHeader(header.getName(), header.getValue());
+            }
+        }
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity != null) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream(entity.getContentLength() > 0 ? (int) entity.getContentLength() : 1024);
+                entity.writeTo(body);
+                if (entity.getContentEncoding() != null) {
+                    h2Request.setHeader(entity.getContentEncoding().getName(), entity.getContentEncoding().getValue());
+                }
+                h2Request.setBody(body.toByteArray(), entity.getContentType() != null
+                        ? org.apache.hc.core5.http.ContentType.parse(entity.getContentType().getValue()) : null);
+            }
+        }
+        RequestConfig config = request.getConfig();
+        if (config != null) {
+            org.apache.hc.client5.http.config.RequestConfig.Builder h2Config = org.apache.hc.client5.http.config.RequestConfig.custom();
+            if (config.getConnectTimeout() > 0) {
+                h2Config.setConnectTimeout(Timeout.ofMilliseconds(config.getConnectTimeout()));
+            }
+            if (config.getSocketTimeout() > 0) {
+                h2Config.setResponseTimeout(Timeout.ofMilliseconds(config.getSocketTimeout()));
+            }
+            h2Request.setConfig(h2Config.build());
+        }
+        return h2Request;
+    }
+
+    private static HttpResponse toResponse(SimpleHttpResponse h2Response) {
+        BasicHttpResponse response = new BasicHttpResponse(new BasicStatusLine(HTTP_2, h2Response.getCode(), h2Response.getReasonPhrase()));
+        for (org.apache.hc.core5.http.Header header : h2Response.getHeaders()) {
+            response.addHeader(header.getName(), header.getValue());
+        }
+        byte[] body = h2Response.getBodyBytes();
+        if (body != null) {
+            ByteArrayEntity entity = new ByteArrayEntity(body);
+            Header contentType = response.getFirstHeader("Content-Type");
+            if (contentType != null) {
+                entity.setContentType(contentType);
+            }
+            Header contentEncoding = response.getFirstHeader("Content-Encoding");
+            if (contentEncoding != null) {
+                entity.setContentEncoding(contentEncoding);
+            }
+            response.setEntity(entity);
+        }
+        return response;
+    }
+
+    /**
+     * 与HttpClient 4的DefaultHttpRequestRetryHandler一致：只重试I/O异常，不按响应状态码重试，非幂等请求默认不重试
+     */
+    private static final class IoRetryStrategy extends DefaultHttpRequestRetryStrategy {
+
+        private final boolean requestSentRetryEnabled;
+
+        IoRetryStrategy(int retryCount, boolean requestSentRetryEnabled) {
+            super(retryCount, TimeValue.ZERO_MILLISECONDS, Arrays.<Class<? extends IOException>>asList(
+                    InterruptedIOException.class, UnknownHostException.class, ConnectException.class, SSLException.class),
+                    Collections.<Integer>emptyList());
+            this.requestSentRetryEnabled = requestSentRetryEnabled;
+        }
+
+        @Override
+        protected boolean handleAsIdempotent(HttpRequest request) {
+            return this.requestSentRetryEnabled || IDEMPOTENT_METHODS.contains(request.getMethod().toUpperCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.javaq.http.core.h2;
+
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.core5.function.Factory;
+import org.apache.hc.core5.reactor.ssl.TlsDetails;
+import org.javaq.http.core.ssl.TlsHandshakeMetrics;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 统计HTTP/2连接完整握手与会话复用握手次数的TLS策略：初始化SSLEngine时记下开始时间，握手完成后比较会话创建时间
+ */
+class MonitoredClientTlsStrategy extends DefaultClientTlsStrategy {
+
+    private final HandshakeTracker tracker;
+
+    MonitoredClientTlsStrategy(SSLContext sslContext, HostnameVerifier hostnameVerifier, TlsHandshakeMetrics handshakeMetrics) {
+        this(sslContext, hostnameVerifier, new HandshakeTracker(handshakeMetrics));
+    }
+
+    private MonitoredClientTlsStrategy(SSLContext sslContext, HostnameVerifier hostnameVerifier, HandshakeTracker tracker) {
+        super(sslContext, null, null, null, hostnameVerifier, tracker);
+        this.tracker = tracker;
+    }
+
+    @Override
+    protected void initializeEngine(SSLEngine sslEngine) {
+        super.initializeEngine(sslEngine);
+        tracker.begin(sslEngine);
+    }
+
+    @Override
+    protected void verifySession(String hostname, SSLSession sslsession) throws SSLException {
+        try {
+            super.verifySession(hostname, sslsession);
+        } catch (SSLException e) {
+            tracker.handshakeMetrics.recordFailed();
+            throw e;
+        }
+    }
+
+    /**
+     * 握手完成后由TLS层回调，返回null时由httpcore5按SSLEngine协商结果生成TlsDetails
+     */
+    private static final class HandshakeTracker implements Factory<SSLEngine, TlsDetails> {
+
+        private final TlsHandshakeMetrics handshakeMetrics;
+
+        /**
+         * 握手失败的SSLEngine不会回调，弱引用避免残留
+         */
+        private final Map<SSLEngine, Long> starts = Collections.synchronizedMap(new WeakHashMap<SSLEngine, Long>());
+
+        private HandshakeTracker(TlsHandshakeMetrics handshakeMetrics) {
+            this.handshakeMetrics = handshakeMetrics;
+        }
+
+        private void begin(SSLEngine sslEngine) {
+            starts.put(sslEngine, System.currentTimeMillis());
+        }
+
+        @Override
+        public TlsDetails create(SSLEngine sslEngine) {
+            Long start = starts.remove(sslEngine);
+            if (start != null) {
+                handshakeMetrics.record(sslEngine.getSession(), start);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.javaq.http.core.h2;
+
+/**
+ * 请求传输协议
+ */
+public enum Transport {
+
+    /**
+     * HTTP/1.1，每个连接同一时刻只处理一个请求，同一主机的并发受maxPerRoute限制
+     */
+    HTTP1,
+
+    /**
+     * HTTP/2，https通过ALPN协商，http使用h2c（prior knowledge），同一主机的并发请求复用少量连接
+     */
+    HTTP2;
+
+    /**
+     * 按名称解析，忽略大小写，null或空串返回{@link #HTTP1}
+     */
+    public static Transport of(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return HTTP1;
+        }
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,353 @@
+package org.javaq.http.core.hedge;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.RequestBuilder;
+import org.javaq.http.core.pool.Routes;
+import org.javaq.http.core.retry.RetryBudget;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对冲请求：安全方法（GET、HEAD、OPTIONS）在等待delay毫秒后仍未返回时，再发出一份相同的请求，
+ * 取先完成的结果并中止另一份。delay未配置时使用该路由最近成功请求的percentile分位耗时，样本不足时不对冲；
+ * 对冲次数受按路由统计的预算限制，不超过请求数的maxHedgeRatio比例。
+ * 可由多个客户端共享，由首个启动它的客户端决定线程工厂，线程在最后一个使用它的客户端关闭或本bean销毁时停止
+ */
+public class HedgingPolicy implements DisposableBean {
+
+    private static final Set<String> SAFE_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS"));
+
+    private static final int LATENCY_SAMPLES = 256;
+
+    public interface Call<V> {
+        V call(HttpRequestBase request) throws IOException;
+    }
+
+    private long delay = 0;//milliseconds
+
+    private double percentile = 95;
+
+    private double maxHedgeRatio = 0.05;
+
+    private int budgetCapacity = 10;
+
+    private RetryBudget budget;
+
+    private final ConcurrentMap<String, LatencyTracker> latencyTrackers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private int users;
+
+    private ExecutorService executor;
+
+    private final AtomicLong hedgedRequests = new AtomicLong();
+
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    private final AtomicLong budgetExhaustedCount = new AtomicLong();
+
+    /**
+     * @param threadFactory 发出对冲请求的线程工厂，为null时使用名为httpclient-hedge-N的守护线程
+     */
+    public synchronized void start(ThreadFactory threadFactory) {
+        this.users++;
+        if (this.scheduler != null) {
+            return;
+        }
+        this.budget = new RetryBudget(this.maxHedgeRatio, this.budgetCapacity);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("httpclient-hedge-scheduler")
+                .setDaemon(true)
+                .build());
+        this.executor = Executors.newCachedThreadPool(threadFactory != null ? threadFactory : new ThreadFactoryBuilder()
+                .setNameFormat("httpclient-hedge-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * 与start成对调用，最后一个使用方释放后停止后台线程
+     */
+    public synchronized void release() {
+        if (this.users > 0 && --this.users == 0) {
+            shutdown();
+        }
+    }
+
+    public synchronized void shutdown() {
+        this.users = 0;
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.executor.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+    public synchronized boolean isStarted() {
+        return this.scheduler != null;
+    }
+
+    @Override
+    public void destroy() {
+        shutdown();
+    }
+
+    /**
+     * 由调用线程执行原请求，对冲请求在后台线程执行；未启动或请求不可对冲时直接执行
+     */
+    public <V> V execute(HttpRequestBase request, Call<V> call) throws IOException {
+        ScheduledExecutorService currentScheduler = this.scheduler;
+        if (currentScheduler == null || !SAFE_METHODS.contains(request.getMethod().toUpperCase(Locale.ROOT))) {
+            return call.call(request);
+        }
+        String route = Routes.name(request.getURI());
+        this.budget.deposit(route);
+        LatencyTracker tracker = trackerOf(route);
+        long hedgeDelay = this.delay > 0 ? this.delay : tracker.getPercentileMillis();
+        long start = System.nanoTime();
+        if (hedgeDelay < 0) {
+            V result = call.call(request);
+            tracker.record(elapsedMillis(start));
+            return result;
+        }
+
+        Hedge<V> hedge = new Hedge<>(request, call, route, tracker);
+        ScheduledFuture<?> trigger;
+        try {
+            trigger = currentScheduler.schedule(hedge, hedgeDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return call.call(request);
+        }
+        V result;
+        try {
+            result = call.call(request);
+        } catch (IOException | RuntimeException e) {
+            trigger.cancel(false);
+            // 对冲未发出，或原请求被调用方中止（而非对冲请求胜出后中止）时不再等待对冲结果
+            if (hedge.finishPrimary() || (request.isAborted() && !hedge.abortedPrimary.get())) {
+                hedge.abort();
+                throw e;
+            }
+            try {
+                V hedgeResult = hedge.await();
+                hedgeWins.incrementAndGet();
+                return hedgeResult;
+            } catch (IOException | RuntimeException hedgeFailure) {
+                if (hedgeFailure != e) {
+                    e.addSuppressed(hedgeFailure);
+                }
+                throw e;
+            }
+        }
+        trigger.cancel(false);
+        if (!hedge.finishPrimary()) {
+            hedge.abort();
+        }
+        tracker.record(elapsedMillis(start));
+        return result;
+    }
+
+    private LatencyTracker trackerOf(String route) {
+        LatencyTracker tracker = latencyTrackers.get(route);
+        if (tracker == null) {
+            LatencyTracker created = new LatencyTracker(LATENCY_SAMPLES, this.percentile);
+            tracker = latencyTrackers.putIfAbsent(route, created);
+            if (tracker == null) {
+                tracker = created;
+            }
+        }
+        return tracker;
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * 一次请求的对冲状态：定时触发后发出请求副本，副本先成功时中止原请求
+     */
+    private class Hedge<V> implements Runnable {
+        private static final int WAITING = 0;
+        private static final int LAUNCHED = 1;
+        private static final int PRIMARY_FINISHED = 2;
+
+        private final HttpRequestBase request;
+        private final Call<V> call;
+        private final String route;
+        private final LatencyTracker tracker;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private final AtomicBoolean abortedPrimary = new AtomicBoolean();
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private volatile HttpRequestBase copy;
+        private volatile boolean primaryFinished;
+
+        Hedge(HttpRequestBase request, Call<V> call, String route, LatencyTracker tracker) {
+            this.request = request;
+            this.call = call;
+            this.route = route;
+            this.tracker = tracker;
+        }
+
+        @Override
+        public void run() {
+            if (state.get() != WAITING) {
+                return;
+            }
+            if (!budget.tryWithdraw(route)) {
+                budgetExhaustedCount.incrementAndGet();
+                return;
+            }
+            // HttpRequestBase.clone()与原请求共享中止状态，中止一份会影响另一份，因此用RequestBuilder重新构建
+            copy = (HttpRequestBase) RequestBuilder.copy(request).build();
+            if (!state.compareAndSet(WAITING, LAUNCHED)) {
+                return;
+            }
+            hedgedRequests.incrementAndGet();
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        execute();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(new InterruptedIOException("Hedging policy is shut down"));
+            }
+        }
+
+        private void execute() {
+            long start = System.nanoTime();
+            try {
+                V value = call.call(copy);
+                tracker.record(elapsedMillis(start));
+                if (result.complete(value) && !primaryFinished) {
+                    abortedPrimary.set(true);
+                    request.abort();
+                }
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }
+
+        /**
+         * @return 对冲请求未发出时返回true，之后不会再发出
+         */
+        boolean finishPrimary() {
+            primaryFinished = true;
+            return state.compareAndSet(WAITING, PRIMARY_FINISHED) || state.get() == PRIMARY_FINISHED;
+        }
+
+        void abort() {
+            HttpRequestBase current = copy;
+            if (current != null) {
+                current.abort();
+            }
+        }
+
+        V await() throws IOException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                abort();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for hedged request");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * 发出的对冲请求数
+     */
+    public long getHedgedRequests() {
+        return hedgedRequests.get();
+    }
+
+    /**
+     * 对冲请求先于原请求成功的次数
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * 因对冲预算耗尽而未发出的对冲请求数
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.get();
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    /**
+     * @param delay 固定的对冲等待毫秒数，为0时使用路由的分位耗时
+     */
+    public void setDelay(long delay) {
+        this.delay = delay;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * @param percentile 未配置delay时按该分位耗时对冲，默认95
+     */
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+
+    /**
+     * @param maxHedgeRatio 对冲请求占请求数的比例上限，默认0.05
+     */
+    public void setMaxHedgeRatio(double maxHedgeRatio) {
+        this.maxHedgeRatio = maxHedgeRatio;
+    }
+
+    public int getBudgetCapacity() {
+        return budgetCapacity;
+    }
+
+    /**
+     * @param budgetCapacity 每个路由允许的突发对冲次数，默认10
+     */
+    public void setBudgetCapacity(int budgetCapacity) {
+        this.budgetCapacity = budgetCapacity;
+    }
+}
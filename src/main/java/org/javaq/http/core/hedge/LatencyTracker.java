@@ -0,0 +1,51 @@
+package org.javaq.http.core.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单个路由最近若干次成功请求的耗时，每写入一定数量的样本后重新计算一次分位值，读取分位值无需排序
+ */
+class LatencyTracker {
+
+    private static final int RECOMPUTE_INTERVAL = 32;
+
+    private final AtomicLongArray samples;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final double percentile;
+
+    private volatile long percentileMillis = -1;
+
+    LatencyTracker(int size, double percentile) {
+        this.samples = new AtomicLongArray(size);
+        this.percentile = percentile;
+    }
+
+    void record(long millis) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % samples.length()), millis);
+        if ((n + 1) % RECOMPUTE_INTERVAL == 0) {
+            recompute(Math.min(n + 1, samples.length()));
+        }
+    }
+
+    /**
+     * @return 分位耗时，样本不足一个计算周期时返回-1
+     */
+    long getPercentileMillis() {
+        return percentileMillis;
+    }
+
+    private void recompute(long size) {
+        long[] sorted = new long[(int) size];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        percentileMillis = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,67 @@
+package org.javaq.http.core.lb;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 服务单个地址的负载状态
+ */
+public class EndpointStats {
+
+    private final String service;
+
+    private final String endpoint;
+
+    private final int inFlight;
+
+    private final double ewmaMillis;
+
+    private final long requests;
+
+    private final long failures;
+
+    @ConstructorProperties({"service", "endpoint", "inFlight", "ewmaMillis", "requests", "failures"})
+    public EndpointStats(String service, String endpoint, int inFlight, double ewmaMillis, long requests, long failures) {
+        this.service = service;
+        this.endpoint = endpoint;
+        this.inFlight = inFlight;
+        this.ewmaMillis = ewmaMillis;
+        this.requests = requests;
+        this.failures = failures;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public double getEwmaMillis() {
+        return ewmaMillis;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointStats{" +
+                "service='" + service + '\'' +
+                ", endpoint='" + endpoint + '\'' +
+                ", inFlight=" + inFlight +
+                ", ewmaMillis=" + ewmaMillis +
+                ", requests=" + requests +
+                ", failures=" + failures +
+                '}';
+    }
+}
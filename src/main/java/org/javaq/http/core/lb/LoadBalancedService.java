@@ -0,0 +1,146 @@
+package org.javaq.http.core.lb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 逻辑服务：请求URL的主机名为name时，由客户端在endpoints中选择一个地址发出请求，无需经过外部负载均衡
+ */
+public class LoadBalancedService {
+
+    private String name;
+
+    private String endpoints;
+
+    private LoadBalancingStrategy strategy = LoadBalancingStrategy.P2C;
+
+    private long decayTime = 1000;//milliseconds
+
+    private long failurePenalty = 1000;//milliseconds
+
+    private volatile ServiceEndpoint[] endpointArray;
+
+    /**
+     * 按endpoints创建地址列表，重复调用时重新创建并清空统计
+     */
+    public void init() {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Service name is required");
+        }
+        List<ServiceEndpoint> list = new ArrayList<>();
+        if (endpoints != null) {
+            for (String address : endpoints.split("[,;\\s]+")) {
+                if (!address.isEmpty()) {
+                    list.add(new ServiceEndpoint(address, decayTime, failurePenalty));
+                }
+            }
+        }
+        if (list.isEmpty()) {
+            throw new IllegalArgumentException("No endpoint configured for service " + name);
+        }
+        this.endpointArray = list.toArray(new ServiceEndpoint[list.size()]);
+    }
+
+    public ServiceEndpoint choose() {
+        ServiceEndpoint[] candidates = this.endpointArray;
+        if (candidates == null) {
+            throw new IllegalStateException("Service " + name + " is not initialized");
+        }
+        if (candidates.length == 1) {
+            return candidates[0];
+        }
+        if (strategy == LoadBalancingStrategy.LEAST_REQUESTS) {
+            return leastRequests(candidates);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.length);
+        int second = random.nextInt(candidates.length - 1);
+        if (second >= first) {
+            second++;
+        }
+        return candidates[first].cost() <= candidates[second].cost() ? candidates[first] : candidates[second];
+    }
+
+    private static ServiceEndpoint leastRequests(ServiceEndpoint[] candidates) {
+        // 从随机位置开始扫描，避免负载相同时总是选中第一个地址
+        int offset = ThreadLocalRandom.current().nextInt(candidates.length);
+        ServiceEndpoint best = null;
+        for (int i = 0; i < candidates.length; i++) {
+            ServiceEndpoint candidate = candidates[(offset + i) % candidates.length];
+            if (best == null || candidate.getInFlight() < best.getInFlight()
+                    || (candidate.getInFlight() == best.getInFlight() && candidate.cost() < best.cost())) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    public List<ServiceEndpoint> getEndpointList() {
+        ServiceEndpoint[] candidates = this.endpointArray;
+        return candidates == null ? Collections.<ServiceEndpoint>emptyList() : Collections.unmodifiableList(Arrays.asList(candidates));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name 逻辑服务名，请求URL使用该名称作为主机名，如 http://user-service/users/1
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @param endpoints 逗号分隔的地址，host:port 或 scheme://host:port
+     */
+    public void setEndpoints(String endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public LoadBalancingStrategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(LoadBalancingStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public long getDecayTime() {
+        return decayTime;
+    }
+
+    /**
+     * @param decayTime EWMA耗时的衰减时间常数，毫秒，越小越快反映最新耗时，默认1000
+     */
+    public void setDecayTime(long decayTime) {
+        this.decayTime = decayTime;
+    }
+
+    public long getFailurePenalty() {
+        return failurePenalty;
+    }
+
+    /**
+     * @param failurePenalty 失败请求计入EWMA的最小耗时，毫秒，使连接失败等快速失败的地址不会被优先选择，默认1000
+     */
+    public void setFailurePenalty(long failurePenalty) {
+        this.failurePenalty = failurePenalty;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadBalancedService{" +
+                "name='" + name + '\'' +
+                ", endpoints='" + endpoints + '\'' +
+                ", strategy=" + strategy +
+                '}';
+    }
+}
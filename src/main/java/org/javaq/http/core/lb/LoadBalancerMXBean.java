@@ -0,0 +1,11 @@
+package org.javaq.http.core.lb;
+
+import java.util.List;
+
+/**
+ * 逻辑服务各地址的负载，属性在读取时采样
+ */
+public interface LoadBalancerMXBean {
+
+    List<EndpointStats> getEndpointStats();
+}
@@ -0,0 +1,26 @@
+package org.javaq.http.core.lb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class LoadBalancerMetrics implements LoadBalancerMXBean {
+
+    private final Collection<LoadBalancedService> services;
+
+    public LoadBalancerMetrics(Collection<LoadBalancedService> services) {
+        this.services = services;
+    }
+
+    @Override
+    public List<EndpointStats> getEndpointStats() {
+        List<EndpointStats> stats = new ArrayList<>();
+        for (LoadBalancedService service : services) {
+            for (ServiceEndpoint endpoint : service.getEndpointList()) {
+                stats.add(new EndpointStats(service.getName(), endpoint.getAddress(), endpoint.getInFlight(),
+                        endpoint.getEwmaMillis(), endpoint.getRequests(), endpoint.getFailures()));
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,33 @@
+package org.javaq.http.core.lb;
+
+/**
+ * 从服务的多个地址中选择请求目标的策略
+ */
+public enum LoadBalancingStrategy {
+
+    /**
+     * 随机取两个地址，选择负载较低的一个：负载为EWMA耗时乘以(进行中请求数 + 1)，避免所有调用方同时涌向同一个最空闲的地址
+     */
+    P2C,
+
+    /**
+     * 选择进行中请求数最少的地址，相同时选择EWMA耗时较低的
+     */
+    LEAST_REQUESTS;
+
+    /**
+     * 按名称解析，忽略大小写和下划线，支持p2c、leastRequests，null或空串返回{@link #P2C}
+     */
+    public static LoadBalancingStrategy of(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return P2C;
+        }
+        String normalized = name.trim().replace("_", "");
+        for (LoadBalancingStrategy strategy : values()) {
+            if (strategy.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown load balancing strategy: " + name);
+    }
+}
@@ -0,0 +1,133 @@
+package org.javaq.http.core.lb;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.utils.URIUtils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 服务的一个地址及其实时负载：进行中的请求数和按时间衰减的峰值EWMA耗时。
+ * 耗时高于当前EWMA时立即取该值，变慢的地址在下一次选择时就会被避开，之后随时间衰减回落
+ */
+public class ServiceEndpoint {
+
+    private final String address;
+
+    private final HttpHost host;
+
+    private final boolean schemeSpecified;
+
+    private final double decayNanos;
+
+    private final long failurePenaltyNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToRawLongBits(0));
+
+    private final AtomicLong lastObserved = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * @param address   host:port 或 scheme://host:port，未指定scheme时沿用请求的scheme
+     * @param decayTime      EWMA衰减时间常数，毫秒
+     * @param failurePenalty 失败请求计入EWMA的最小耗时，毫秒
+     */
+    ServiceEndpoint(String address, long decayTime, long failurePenalty) {
+        this.address = address;
+        this.host = HttpHost.create(address);
+        this.schemeSpecified = address.contains("://");
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, decayTime));
+        this.failurePenaltyNanos = TimeUnit.MILLISECONDS.toNanos(failurePenalty);
+    }
+
+    /**
+     * 将逻辑服务名的请求地址改写为本地址，保留路径和查询参数
+     */
+    public URI rewrite(URI uri) {
+        HttpHost target = schemeSpecified ? host : new HttpHost(host.getHostName(), host.getPort(), uri.getScheme());
+        try {
+            return URIUtils.rewriteURI(uri, target, false);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Fail to rewrite " + uri + " to " + address, e);
+        }
+    }
+
+    /**
+     * 请求发出前调用，返回开始时间
+     */
+    public long begin() {
+        inFlight.incrementAndGet();
+        requests.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * 请求结束后调用，失败时耗时按至少failurePenalty计入EWMA
+     */
+    public void end(long start, boolean failure) {
+        inFlight.decrementAndGet();
+        long latency = System.nanoTime() - start;
+        if (failure) {
+            failures.incrementAndGet();
+            latency = Math.max(latency, failurePenaltyNanos);
+        }
+        observe(latency);
+    }
+
+    /**
+     * 请求被取消时调用，只减少进行中的请求数
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    private void observe(long latency) {
+        long now = System.nanoTime();
+        long elapsed = Math.max(0, now - lastObserved.getAndSet(now));
+        double weight = Math.exp(-elapsed / decayNanos);
+        while (true) {
+            long bits = ewmaBits.get();
+            double previous = Double.longBitsToDouble(bits);
+            double next = latency > previous ? latency : previous * weight + latency * (1 - weight);
+            if (ewmaBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 负载估计，越小越优先
+     */
+    double cost() {
+        double ewma = Double.longBitsToDouble(ewmaBits.get());
+        return (ewma + 1) * (inFlight.get() + 1);
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getEwmaMillis() {
+        return Double.longBitsToDouble(ewmaBits.get()) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+}
@@ -0,0 +1,173 @@
+package org.javaq.http.core.limit;
+
+import org.javaq.http.core.pool.Routes;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按路由创建自适应并发上限并保存算法参数；超过上限的请求立即失败，而不是在已饱和的连接池中排队
+ */
+public class AdaptiveConcurrencyLimiter implements ConcurrencyLimitMXBean {
+
+    private final ConcurrentMap<String, ConcurrencyLimit> limits = new ConcurrentHashMap<>();
+
+    private ConcurrencyLimitAlgorithm algorithm = ConcurrencyLimitAlgorithm.GRADIENT;
+
+    private int initialLimit = 20;
+
+    private int minLimit = 1;
+
+    private int maxLimit = 200;
+
+    private double backoffRatio = 0.9;
+
+    private int windowSize = 20;
+
+    private double rttTolerance = 1.5;
+
+    private double smoothing = 0.2;
+
+    private long timeout = 0;//milliseconds
+
+    /**
+     * @return 路由的并发上限，尚未创建时返回null
+     */
+    public ConcurrencyLimit get(URI uri) {
+        return limits.get(Routes.name(uri));
+    }
+
+    /**
+     * @param ceiling 该路由并发上限的最大值，与maxLimit取较小者
+     */
+    public ConcurrencyLimit of(URI uri, int ceiling) {
+        String route = Routes.name(uri);
+        ConcurrencyLimit limit = limits.get(route);
+        if (limit == null) {
+            ConcurrencyLimit created = new ConcurrencyLimit(route, this, Math.min(this.maxLimit, ceiling));
+            limit = limits.putIfAbsent(route, created);
+            if (limit == null) {
+                limit = created;
+            }
+        }
+        return limit;
+    }
+
+    @Override
+    public long getShedCalls() {
+        long shedCalls = 0;
+        for (ConcurrencyLimit limit : limits.values()) {
+            shedCalls += limit.getShedCalls();
+        }
+        return shedCalls;
+    }
+
+    @Override
+    public List<ConcurrencyLimitStats> getConcurrencyLimitStats() {
+        List<ConcurrencyLimitStats> stats = new ArrayList<>(limits.size());
+        for (ConcurrencyLimit limit : limits.values()) {
+            stats.add(new ConcurrencyLimitStats(limit.getRoute(), limit.getLimit(), limit.getInFlight(),
+                    limit.getRttMillis(), limit.getShedCalls()));
+        }
+        return stats;
+    }
+
+    public ConcurrencyLimitAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(ConcurrencyLimitAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    /**
+     * @param initialLimit 路由的初始并发上限，默认20
+     */
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * @param minLimit 并发上限的最小值，默认1
+     */
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * @param maxLimit 并发上限的最大值，HTTP/1.1下还不超过连接池的单路由连接数，默认200
+     */
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    /**
+     * @param backoffRatio 出现过载时上限乘以该比例，默认0.9
+     */
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @param windowSize 每收集多少个样本调整一次上限，默认20
+     */
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+
+    /**
+     * @param rttTolerance GRADIENT算法允许窗口耗时超过无排队耗时的倍数，超过后开始收缩，默认1.5
+     */
+    public void setRttTolerance(double rttTolerance) {
+        this.rttTolerance = rttTolerance;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    /**
+     * @param smoothing GRADIENT算法每次调整向新上限靠近的比例，默认0.2
+     */
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout 耗时超过该毫秒数的请求与错误一样视为过载，0表示不按耗时判断，默认0
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,163 @@
+package org.javaq.http.core.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个路由的自适应并发上限。获取和释放只操作原子计数；每收集windowSize个样本，由恰好完成该窗口的线程计算新的上限，
+ * 计算期间其他线程继续记录样本，窗口边界上的少量样本可能计入下一个窗口
+ */
+public class ConcurrencyLimit {
+
+    private final String route;
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    private final AtomicInteger samples = new AtomicInteger();
+
+    private final AtomicInteger drops = new AtomicInteger();
+
+    private final AtomicLong rttSum = new AtomicLong();
+
+    private final AtomicLong minRtt = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    private double noLoadRtt;//guarded by updating
+
+    private volatile long lastRtt;
+
+    private final AtomicLong shedCalls = new AtomicLong();
+
+    /**
+     * @param maxLimit 该路由的上限，不超过连接池的单路由连接数，避免请求在连接池中排队
+     */
+    ConcurrencyLimit(String route, AdaptiveConcurrencyLimiter limiter, int maxLimit) {
+        this.route = route;
+        this.limiter = limiter;
+        this.maxLimit = Math.max(limiter.getMinLimit(), maxLimit);
+        this.limit = clamp(limiter.getInitialLimit());
+    }
+
+    /**
+     * @return 是否放行本次请求；放行后必须调用{@link #complete}或{@link #release}
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                shedCalls.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                int peak;
+                while ((peak = maxInFlight.get()) <= current && !maxInFlight.compareAndSet(peak, current + 1)) {
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求未发出或被中止时调用，不计入样本
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * @param rtt     请求耗时，纳秒
+     * @param dropped 是否出现过载信号：网络异常、超时或429、503、504响应
+     */
+    public void complete(long rtt, boolean dropped) {
+        inFlight.decrementAndGet();
+        rttSum.addAndGet(rtt);
+        long min;
+        while (rtt < (min = minRtt.get()) && !minRtt.compareAndSet(min, rtt)) {
+        }
+        if (dropped || (limiter.getTimeout() > 0 && rtt > TimeUnit.MILLISECONDS.toNanos(limiter.getTimeout()))) {
+            drops.incrementAndGet();
+        }
+        if (samples.incrementAndGet() >= limiter.getWindowSize() && updating.compareAndSet(false, true)) {
+            try {
+                update();
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+
+    private void update() {
+        int count = samples.getAndSet(0);
+        if (count <= 0) {
+            return;
+        }
+        double rtt = (double) rttSum.getAndSet(0) / count;
+        long windowMinRtt = minRtt.getAndSet(Long.MAX_VALUE);
+        boolean dropped = drops.getAndSet(0) > 0;
+        int peak = maxInFlight.getAndSet(inFlight.get());
+        // 实际并发不到上限的一半时，说明上限不是瓶颈，不再增加
+        boolean saturated = peak * 2 >= limit;
+        double current = this.limit;
+        double next;
+        if (limiter.getAlgorithm() == ConcurrencyLimitAlgorithm.AIMD) {
+            if (dropped) {
+                next = current * limiter.getBackoffRatio();
+            } else {
+                next = saturated ? current + 1 : current;
+            }
+        } else {
+            // 无排队耗时取观察到的最小耗时，并缓慢上浮，使下游本身变慢后能重新确定基准
+            noLoadRtt = noLoadRtt == 0 ? windowMinRtt : Math.min(windowMinRtt, noLoadRtt * 1.001);
+            if (dropped) {
+                next = current * limiter.getBackoffRatio();
+            } else {
+                double gradient = Math.max(0.5, Math.min(1.0, limiter.getRttTolerance() * noLoadRtt / rtt));
+                double candidate = current * gradient + Math.sqrt(current);
+                if (!saturated) {
+                    candidate = Math.min(candidate, current);
+                }
+                next = current * (1 - limiter.getSmoothing()) + candidate * limiter.getSmoothing();
+            }
+        }
+        this.lastRtt = (long) rtt;
+        this.limit = clamp(next);
+    }
+
+    private double clamp(double value) {
+        return Math.max(limiter.getMinLimit(), Math.min(maxLimit, value));
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 上一个窗口的平均耗时，毫秒
+     */
+    public double getRttMillis() {
+        return (double) lastRtt / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getShedCalls() {
+        return shedCalls.get();
+    }
+}
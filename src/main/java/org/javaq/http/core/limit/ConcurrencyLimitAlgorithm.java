@@ -0,0 +1,33 @@
+package org.javaq.http.core.limit;
+
+/**
+ * 根据请求耗时和过载信号调整并发上限的算法
+ */
+public enum ConcurrencyLimitAlgorithm {
+
+    /**
+     * 加性增、乘性减：窗口内没有过载且上限已被用到一半以上时加1，出现过载（错误或超过timeout）时乘以backoffRatio
+     */
+    AIMD,
+
+    /**
+     * 按无排队耗时（观察到的最小耗时）与当前窗口平均耗时之比缩放上限，耗时上升时在出现错误之前就开始收缩，
+     * 并保留sqrt(limit)的余量用于探测
+     */
+    GRADIENT;
+
+    /**
+     * 按名称解析，忽略大小写，null或空串返回{@link #GRADIENT}
+     */
+    public static ConcurrencyLimitAlgorithm of(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return GRADIENT;
+        }
+        for (ConcurrencyLimitAlgorithm algorithm : values()) {
+            if (algorithm.name().equalsIgnoreCase(name.trim())) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unknown concurrency limit algorithm: " + name);
+    }
+}
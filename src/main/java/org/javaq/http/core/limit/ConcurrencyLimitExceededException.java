@@ -0,0 +1,29 @@
+package org.javaq.http.core.limit;
+
+import java.io.IOException;
+
+/**
+ * 路由进行中的请求数已达到自适应并发上限，请求被直接拒绝，未发出网络请求
+ */
+public class ConcurrencyLimitExceededException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String route;
+
+    private final int limit;
+
+    public ConcurrencyLimitExceededException(String route, int limit) {
+        super("Concurrency limit " + limit + " exceeded for " + route);
+        this.route = route;
+        this.limit = limit;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
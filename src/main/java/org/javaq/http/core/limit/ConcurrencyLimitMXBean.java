@@ -0,0 +1,16 @@
+package org.javaq.http.core.limit;
+
+import java.util.List;
+
+/**
+ * 各路由当前的并发上限和拒绝的请求数
+ */
+public interface ConcurrencyLimitMXBean {
+
+    /**
+     * 因超过并发上限被直接拒绝的请求数
+     */
+    long getShedCalls();
+
+    List<ConcurrencyLimitStats> getConcurrencyLimitStats();
+}
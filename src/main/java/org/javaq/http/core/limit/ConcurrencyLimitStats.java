@@ -0,0 +1,59 @@
+package org.javaq.http.core.limit;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 单个路由的并发上限状态
+ */
+public class ConcurrencyLimitStats {
+
+    private final String route;
+
+    private final int limit;
+
+    private final int inFlight;
+
+    private final double rttMillis;
+
+    private final long shedCalls;
+
+    @ConstructorProperties({"route", "limit", "inFlight", "rttMillis", "shedCalls"})
+    public ConcurrencyLimitStats(String route, int limit, int inFlight, double rttMillis, long shedCalls) {
+        this.route = route;
+        this.limit = limit;
+        this.inFlight = inFlight;
+        this.rttMillis = rttMillis;
+        this.shedCalls = shedCalls;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public double getRttMillis() {
+        return rttMillis;
+    }
+
+    public long getShedCalls() {
+        return shedCalls;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimitStats{" +
+                "route='" + route + '\'' +
+                ", limit=" + limit +
+                ", inFlight=" + inFlight +
+                ", rttMillis=" + rttMillis +
+                ", shedCalls=" + shedCalls +
+                '}';
+    }
+}
@@ -0,0 +1,39 @@
+package org.javaq.http.core.pool;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 连接池运行状态，属性在读取时采样
+ */
+public interface ConnectionPoolMXBean {
+
+    int getLeased();
+
+    int getAvailable();
+
+    int getPending();
+
+    int getMaxTotal();
+
+    int getDefaultMaxPerRoute();
+
+    long getLeaseCount();
+
+    long getConnectionsCreated();
+
+    long getConnectionsClosed();
+
+    /**
+     * 复用已有连接的租用占比
+     */
+    double getReuseRatio();
+
+    double getLeaseWaitMeanMillis();
+
+    double getLeaseWaitMaxMillis();
+
+    Map<String, Long> getLeaseWaitHistogram();
+
+    List<RouteStats> getRouteStats();
+}
@@ -0,0 +1,95 @@
+package org.javaq.http.core.pool;
+
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.PoolStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ConnectionPoolMetrics implements ConnectionPoolMXBean {
+
+    private final InstrumentedConnectionManager connectionManager;
+
+    public ConnectionPoolMetrics(InstrumentedConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    public int getLeased() {
+        return connectionManager.getTotalStats().getLeased();
+    }
+
+    @Override
+    public int getAvailable() {
+        return connectionManager.getTotalStats().getAvailable();
+    }
+
+    @Override
+    public int getPending() {
+        return connectionManager.getTotalStats().getPending();
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return connectionManager.getMaxTotal();
+    }
+
+    @Override
+    public int getDefaultMaxPerRoute() {
+        return connectionManager.getDefaultMaxPerRoute();
+    }
+
+    @Override
+    public long getLeaseCount() {
+        return connectionManager.getLeaseCount();
+    }
+
+    @Override
+    public long getConnectionsCreated() {
+        return connectionManager.getConnectionsCreated();
+    }
+
+    /**
+     * 新建连接数减去当前池中的连接数
+     */
+    @Override
+    public long getConnectionsClosed() {
+        PoolStats stats = connectionManager.getTotalStats();
+        return Math.max(0, connectionManager.getConnectionsCreated() - stats.getLeased() - stats.getAvailable());
+    }
+
+    @Override
+    public double getReuseRatio() {
+        long leaseCount = connectionManager.getLeaseCount();
+        if (leaseCount == 0) {
+            return 0;
+        }
+        return Math.max(0, 1 - (double) connectionManager.getConnectionsCreated() / leaseCount);
+    }
+
+    @Override
+    public double getLeaseWaitMeanMillis() {
+        return connectionManager.getLeaseWaitHistogram().getMeanMillis();
+    }
+
+    @Override
+    public double getLeaseWaitMaxMillis() {
+        return connectionManager.getLeaseWaitHistogram().getMaxMillis();
+    }
+
+    @Override
+    public Map<String, Long> getLeaseWaitHistogram() {
+        return connectionManager.getLeaseWaitHistogram().snapshot();
+    }
+
+    @Override
+    public List<RouteStats> getRouteStats() {
+        List<RouteStats> routeStats = new ArrayList<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            PoolStats stats = connectionManager.getStats(route);
+            routeStats.add(new RouteStats(route.getTargetHost().toURI(), stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax()));
+        }
+        return routeStats;
+    }
+}
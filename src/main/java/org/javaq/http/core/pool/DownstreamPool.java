@@ -0,0 +1,77 @@
+package org.javaq.http.core.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 下游独立连接池（舱壁）配置，hosts中的主机使用独立的连接池，互不抢占连接
+ */
+public class DownstreamPool {
+
+    private String name;
+
+    private String hosts;
+
+    private Integer maxTotal;
+
+    private Integer maxPerRoute;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getHosts() {
+        return hosts;
+    }
+
+    /**
+     * @param hosts 逗号分隔的主机名
+     */
+    public void setHosts(String hosts) {
+        this.hosts = hosts;
+    }
+
+    public Integer getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(Integer maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public Integer getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(Integer maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public List<String> getHostList() {
+        List<String> hostList = new ArrayList<>();
+        if (hosts == null) {
+            return hostList;
+        }
+        for (String host : hosts.split(",")) {
+            String trimmed = host.trim();
+            if (!trimmed.isEmpty()) {
+                hostList.add(trimmed.toLowerCase());
+            }
+        }
+        return hostList;
+    }
+
+    @Override
+    public String toString() {
+        return "DownstreamPool{" +
+                "name='" + name + '\'' +
+                ", hosts='" + hosts + '\'' +
+                ", maxTotal=" + maxTotal +
+                ", maxPerRoute=" + maxPerRoute +
+                '}';
+    }
+}
@@ -0,0 +1,81 @@
+package org.javaq.http.core.pool;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.nio.conn.NHttpClientConnectionManager;
+import org.javaq.http.common.logger.Logger;
+import org.javaq.http.common.logger.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台定时关闭过期和空闲超时的连接，避免在业务线程获取连接时才发现失效连接，并在流量下降时收缩连接池
+ */
+public class IdleConnectionEvictor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdleConnectionEvictor.class);
+
+    private final List<HttpClientConnectionManager> connectionManagers = new CopyOnWriteArrayList<>();
+
+    private final List<NHttpClientConnectionManager> asyncConnectionManagers = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final long evictionInterval;
+
+    private final long maxIdleTime;
+
+    /**
+     * @param name             线程名称
+     * @param evictionInterval 检查间隔，毫秒
+     * @param maxIdleTime      空闲超过该时间的连接会被关闭，毫秒
+     */
+    public IdleConnectionEvictor(String name, long evictionInterval, long maxIdleTime) {
+        this.evictionInterval = evictionInterval;
+        this.maxIdleTime = maxIdleTime;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("httpclient-evictor-" + name)
+                .setDaemon(true)
+                .build());
+    }
+
+    public void register(HttpClientConnectionManager connectionManager) {
+        connectionManagers.add(connectionManager);
+    }
+
+    public void register(NHttpClientConnectionManager connectionManager) {
+        asyncConnectionManagers.add(connectionManager);
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evict();
+            }
+        }, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void evict() {
+        try {
+            for (HttpClientConnectionManager connectionManager : connectionManagers) {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+            }
+            for (NHttpClientConnectionManager connectionManager : asyncConnectionManagers) {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Fail to evict idle connections", e);
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
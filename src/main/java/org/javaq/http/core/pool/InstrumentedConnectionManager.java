@@ -0,0 +1,99 @@
+package org.javaq.http.core.pool;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.javaq.http.core.timing.RequestTimings;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录获取连接的等待时间、租用次数和新建连接数的连接池，统计只使用原子计数，不额外持有连接池锁
+ */
+public class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final LeaseWaitHistogram leaseWaitHistogram = new LeaseWaitHistogram();
+
+    private final AtomicLong leaseCount = new AtomicLong();
+
+    private final CountingConnectionFactory connectionFactory;
+
+    private volatile boolean requestTimingEnabled = false;
+
+    public InstrumentedConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry, DnsResolver dnsResolver,
+                                         long timeToLive, TimeUnit timeUnit) {
+        this(socketFactoryRegistry, new CountingConnectionFactory(), dnsResolver, timeToLive, timeUnit);
+    }
+
+    private InstrumentedConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry, CountingConnectionFactory connectionFactory,
+                                          DnsResolver dnsResolver, long timeToLive, TimeUnit timeUnit) {
+        super(socketFactoryRegistry, connectionFactory, null, dnsResolver, timeToLive, timeUnit);
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        final ConnectionRequest request = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit tunit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, tunit);
+                } finally {
+                    long waitNanos = System.nanoTime() - start;
+                    leaseWaitHistogram.record(waitNanos);
+                    leaseCount.incrementAndGet();
+                    if (requestTimingEnabled) {
+                        RequestTimings.recordLease(waitNanos);
+                    }
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    /**
+     * 开启后将获取连接的等待时间记录到当前请求的{@link RequestTimings}
+     */
+    public void setRequestTimingEnabled(boolean requestTimingEnabled) {
+        this.requestTimingEnabled = requestTimingEnabled;
+    }
+
+    public LeaseWaitHistogram getLeaseWaitHistogram() {
+        return leaseWaitHistogram;
+    }
+
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    public long getConnectionsCreated() {
+        return connectionFactory.created.get();
+    }
+
+    private static class CountingConnectionFactory implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> {
+        private final AtomicLong created = new AtomicLong();
+
+        @Override
+        public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+            created.incrementAndGet();
+            return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+        }
+    }
+}
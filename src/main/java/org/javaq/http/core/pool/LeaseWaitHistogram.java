@@ -0,0 +1,66 @@
+package org.javaq.http.core.pool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 获取连接等待时间的分桶统计，无锁，可在请求路径上记录
+ */
+public class LeaseWaitHistogram {
+
+    private static final long[] BOUNDS_MILLIS = {1, 5, 10, 50, 100, 500, 1000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long waitNanos) {
+        long waitMillis = waitNanos / 1000000L;
+        int index = BOUNDS_MILLIS.length;
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            if (waitMillis < BOUNDS_MILLIS[i]) {
+                index = i;
+                break;
+            }
+        }
+        buckets.incrementAndGet(index);
+        totalNanos.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, waitNanos)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public double getMeanMillis() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.get() / 1000000.0 / count;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1000000.0;
+    }
+
+    /**
+     * key为桶的上界，如"<5ms"，最后一个桶为">=1000ms"
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            snapshot.put("<" + BOUNDS_MILLIS[i] + "ms", buckets.get(i));
+        }
+        snapshot.put(">=" + BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1] + "ms", buckets.get(BOUNDS_MILLIS.length));
+        return snapshot;
+    }
+}
@@ -0,0 +1,59 @@
+package org.javaq.http.core.pool;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 单个路由的连接池状态
+ */
+public class RouteStats {
+
+    private final String route;
+
+    private final int leased;
+
+    private final int available;
+
+    private final int pending;
+
+    private final int max;
+
+    @ConstructorProperties({"route", "leased", "available", "pending", "max"})
+    public RouteStats(String route, int leased, int available, int pending, int max) {
+        this.route = route;
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public int getLeased() {
+        return leased;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteStats{" +
+                "route='" + route + '\'' +
+                ", leased=" + leased +
+                ", available=" + available +
+                ", pending=" + pending +
+                ", max=" + max +
+                '}';
+    }
+}
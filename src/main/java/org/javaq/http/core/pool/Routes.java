@@ -0,0 +1,51 @@
+package org.javaq.http.core.pool;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.routing.HttpRoute;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将配置中的路由描述解析为连接池使用的{@link HttpRoute}
+ */
+public final class Routes {
+
+    private Routes() {
+    }
+
+    /**
+     * 支持 host、host:port、scheme://host[:port]，未指定scheme时同时匹配http和https
+     */
+    public static List<HttpRoute> parse(String route) {
+        String value = route.trim();
+        List<HttpRoute> routes = new ArrayList<>(2);
+        if (value.contains("://")) {
+            routes.add(of(HttpHost.create(value)));
+            return routes;
+        }
+        HttpHost host = HttpHost.create(value);
+        routes.add(of(new HttpHost(host.getHostName(), host.getPort(), "http")));
+        routes.add(of(new HttpHost(host.getHostName(), host.getPort(), "https")));
+        return routes;
+    }
+
+    /**
+     * 直连路由，未指定端口时使用scheme的默认端口，与连接池按请求计算的路由一致
+     */
+    public static HttpRoute of(HttpHost host) {
+        boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+        int port = host.getPort() > 0 ? host.getPort() : (secure ? 443 : 80);
+        return new HttpRoute(new HttpHost(host.getHostName(), port, host.getSchemeName()), null, secure);
+    }
+
+    /**
+     * 请求的目标路由名称，格式为 scheme://host:port，用于按路由统计
+     */
+    public static String name(URI uri) {
+        HttpHost host = URIUtils.extractHost(uri);
+        return host != null ? of(host).getTargetHost().toURI() : String.valueOf(uri.getHost());
+    }
+}
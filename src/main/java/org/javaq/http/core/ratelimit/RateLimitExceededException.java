@@ -0,0 +1,22 @@
+package org.javaq.http.core.ratelimit;
+
+import java.io.IOException;
+
+/**
+ * 超过路由的速率限制，请求未发出
+ */
+public class RateLimitExceededException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String route;
+
+    public RateLimitExceededException(String route) {
+        super("Rate limit exceeded for " + route);
+        this.route = route;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+}
@@ -0,0 +1,33 @@
+package org.javaq.http.core.ratelimit;
+
+/**
+ * 超过速率限制时的处理方式
+ */
+public enum RateLimitMode {
+
+    /**
+     * 等待到可以发出请求，预计等待超过maxWait时直接失败
+     */
+    BLOCK,
+
+    /**
+     * 没有可用许可时立即失败
+     */
+    FAIL_FAST;
+
+    /**
+     * 按名称解析，忽略大小写和下划线，支持block、failFast，null或空串返回{@link #BLOCK}
+     */
+    public static RateLimitMode of(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return BLOCK;
+        }
+        String normalized = name.trim().replace("_", "");
+        for (RateLimitMode mode : values()) {
+            if (mode.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rate limit mode: " + name);
+    }
+}
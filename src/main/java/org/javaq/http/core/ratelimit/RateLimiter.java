@@ -0,0 +1,188 @@
+package org.javaq.http.core.ratelimit;
+
+import org.javaq.http.core.pool.Routes;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 单个路由的令牌桶限流，按GCRA实现：只保存桶重新装满的时间点，每次获取许可通过一次CAS推进该时间点，
+ * 不加锁，各线程互不阻塞；等价于容量为burst、每秒补充permitsPerSecond个令牌的令牌桶
+ */
+public class RateLimiter {
+
+    private String route;
+
+    private double permitsPerSecond;
+
+    private int burst = 1;
+
+    private RateLimitMode mode = RateLimitMode.BLOCK;
+
+    private long maxWait = 1000;//milliseconds
+
+    private long intervalNanos;
+
+    private long burstNanos;
+
+    private final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong permitted = new AtomicLong();
+
+    private final AtomicLong delayed = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * 按配置计算发放间隔，重复调用时重新计算
+     */
+    public void init() {
+        if (route == null || route.trim().isEmpty()) {
+            throw new IllegalArgumentException("Rate limit route is required");
+        }
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond of " + route + " must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = this.intervalNanos * Math.max(1, burst);
+    }
+
+    /**
+     * 预订一个许可
+     *
+     * @param maxWaitNanos 最多等待的纳秒数
+     * @return 需要等待的纳秒数，0表示立即可用；需要等待超过maxWaitNanos时返回-1，且不占用许可
+     */
+    public long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > maxWaitNanos) {
+                rejected.incrementAndGet();
+                return -1;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                permitted.incrementAndGet();
+                if (wait > 0) {
+                    delayed.incrementAndGet();
+                    return wait;
+                }
+                return 0;
+            }
+        }
+    }
+
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    /**
+     * 按mode获取许可，BLOCK模式下在当前线程等待
+     *
+     * @throws RateLimitExceededException 没有可用许可，或预计等待超过maxWait
+     * @throws InterruptedIOException     等待时被中断
+     */
+    public void acquire() throws RateLimitExceededException, InterruptedIOException {
+        long wait = reserve(mode == RateLimitMode.BLOCK ? TimeUnit.MILLISECONDS.toNanos(maxWait) : 0);
+        if (wait < 0) {
+            throw new RateLimitExceededException(route);
+        }
+        long deadline = System.nanoTime() + wait;
+        while (wait > 0) {
+            LockSupport.parkNanos(this, wait);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for rate limit of " + route);
+            }
+            wait = deadline - System.nanoTime();
+        }
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * @param route 限流的路由，支持 host、host:port、scheme://host[:port]，未指定scheme时http和https共用配额
+     * @see Routes#parse(String)
+     */
+    public void setRoute(String route) {
+        this.route = route;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * @param permitsPerSecond 每秒允许的请求数
+     */
+    public void setPermitsPerSecond(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * @param burst 允许连续突发的请求数，即令牌桶容量，默认1
+     */
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public RateLimitMode getMode() {
+        return mode;
+    }
+
+    public void setMode(RateLimitMode mode) {
+        this.mode = mode;
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * @param maxWait BLOCK模式下最多等待的毫秒数，默认1000
+     */
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * 获得许可的请求数
+     */
+    public long getPermitted() {
+        return permitted.get();
+    }
+
+    /**
+     * 获得许可前需要等待的请求数
+     */
+    public long getDelayed() {
+        return delayed.get();
+    }
+
+    /**
+     * 因超过限制而失败的请求数
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter{" +
+                "route='" + route + '\'' +
+                ", permitsPerSecond=" + permitsPerSecond +
+                ", burst=" + burst +
+                ", mode=" + mode +
+                '}';
+    }
+}
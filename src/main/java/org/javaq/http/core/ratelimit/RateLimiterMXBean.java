@@ -0,0 +1,11 @@
+package org.javaq.http.core.ratelimit;
+
+import java.util.List;
+
+/**
+ * 各路由限流的请求计数
+ */
+public interface RateLimiterMXBean {
+
+    List<RateLimiterStats> getRateLimiterStats();
+}
@@ -0,0 +1,24 @@
+package org.javaq.http.core.ratelimit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class RateLimiterMetrics implements RateLimiterMXBean {
+
+    private final Collection<RateLimiter> rateLimiters;
+
+    public RateLimiterMetrics(Collection<RateLimiter> rateLimiters) {
+        this.rateLimiters = rateLimiters;
+    }
+
+    @Override
+    public List<RateLimiterStats> getRateLimiterStats() {
+        List<RateLimiterStats> stats = new ArrayList<>(rateLimiters.size());
+        for (RateLimiter rateLimiter : rateLimiters) {
+            stats.add(new RateLimiterStats(rateLimiter.getRoute(), rateLimiter.getPermitsPerSecond(),
+                    rateLimiter.getPermitted(), rateLimiter.getDelayed(), rateLimiter.getRejected()));
+        }
+        return stats;
+    }
+}
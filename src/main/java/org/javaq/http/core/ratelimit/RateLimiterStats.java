@@ -0,0 +1,59 @@
+package org.javaq.http.core.ratelimit;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 单个路由限流的配置和计数
+ */
+public class RateLimiterStats {
+
+    private final String route;
+
+    private final double permitsPerSecond;
+
+    private final long permitted;
+
+    private final long delayed;
+
+    private final long rejected;
+
+    @ConstructorProperties({"route", "permitsPerSecond", "permitted", "delayed", "rejected"})
+    public RateLimiterStats(String route, double permitsPerSecond, long permitted, long delayed, long rejected) {
+        this.route = route;
+        this.permitsPerSecond = permitsPerSecond;
+        this.permitted = permitted;
+        this.delayed = delayed;
+        this.rejected = rejected;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public long getPermitted() {
+        return permitted;
+    }
+
+    public long getDelayed() {
+        return delayed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiterStats{" +
+                "route='" + route + '\'' +
+                ", permitsPerSecond=" + permitsPerSecond +
+                ", permitted=" + permitted +
+                ", delayed=" + delayed +
+                ", rejected=" + rejected +
+                '}';
+    }
+}
@@ -0,0 +1,244 @@
+package org.javaq.http.core.retry;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.javaq.http.core.pool.Routes;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 指数退避重试：第n次重试前等待[0, min(maxDelay, initialDelay * 2^(n-1))]内的随机时间（full jitter），
+ * 响应带Retry-After时按其等待，超过maxDelay则放弃重试。
+ * 非幂等请求默认只在连接未建立时重试；每次重试需从按路由统计的重试预算中取得令牌
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS", "TRACE", "PUT", "DELETE"));
+
+    private int maxRetries = 2;
+
+    private long initialDelay = 100;//milliseconds
+
+    private long maxDelay = 2000;//milliseconds
+
+    private Set<Integer> retryStatuses = parseStatuses("502,503,504");
+
+    private boolean retryNonIdempotent = false;
+
+    private double budgetRatio = 0.1;
+
+    private int budgetCapacity = 10;
+
+    private RetryBudget budget;
+
+    private final AtomicLong retryCount = new AtomicLong();
+
+    private final AtomicLong budgetExhaustedCount = new AtomicLong();
+
+    @Override
+    public void onRequest(HttpRequestBase request) {
+        budget().deposit(Routes.name(request.getURI()));
+    }
+
+    @Override
+    public long retryOnException(HttpRequestBase request, IOException exception, int executionCount, HttpClientContext context) {
+        if (!isRetryable(exception)) {
+            return -1;
+        }
+        if (!isIdempotent(request) && !this.retryNonIdempotent && !(exception instanceof ConnectException || exception instanceof ConnectTimeoutException)) {
+            return -1;
+        }
+        return acquire(request, executionCount, -1);
+    }
+
+    @Override
+    public long retryOnResponse(HttpRequestBase request, HttpResponse response, int executionCount, HttpClientContext context) {
+        if (!this.retryStatuses.contains(response.getStatusLine().getStatusCode())) {
+            return -1;
+        }
+        if (!isIdempotent(request) && !this.retryNonIdempotent) {
+            return -1;
+        }
+        long retryAfter = parseRetryAfter(response.getFirstHeader(HttpHeaders.RETRY_AFTER));
+        if (retryAfter > this.maxDelay) {
+            return -1;
+        }
+        return acquire(request, executionCount, retryAfter);
+    }
+
+    /**
+     * @param retryAfter 服务端要求的等待时间，小于0表示未指定
+     */
+    private long acquire(HttpRequestBase request, int executionCount, long retryAfter) {
+        if (executionCount > this.maxRetries || request.isAborted() || !isRepeatable(request)) {
+            return -1;
+        }
+        if (!budget().tryWithdraw(Routes.name(request.getURI()))) {
+            this.budgetExhaustedCount.incrementAndGet();
+            return -1;
+        }
+        this.retryCount.incrementAndGet();
+        return retryAfter >= 0 ? retryAfter : backoff(executionCount);
+    }
+
+    long backoff(int executionCount) {
+        if (this.initialDelay <= 0) {
+            return 0;
+        }
+        int shift = Math.min(executionCount - 1, 30);
+        // 先与maxDelay比较再左移，避免溢出
+        long ceiling = this.initialDelay > (this.maxDelay >> shift) ? this.maxDelay : this.initialDelay << shift;
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static boolean isRetryable(IOException exception) {
+        if (exception instanceof UnknownHostException || exception instanceof SSLException) {
+            return false;
+        }
+        // 读超时等说明服务端已经在处理，重试只会加重负载；连接超时除外
+        return !(exception instanceof InterruptedIOException) || exception instanceof ConnectTimeoutException;
+    }
+
+    private static boolean isIdempotent(HttpRequestBase request) {
+        return IDEMPOTENT_METHODS.contains(request.getMethod().toUpperCase(Locale.ROOT));
+    }
+
+    private static boolean isRepeatable(HttpRequestBase request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+            return entityRequest.getEntity() == null || entityRequest.getEntity().isRepeatable();
+        }
+        return true;
+    }
+
+    /**
+     * Retry-After可以是秒数或HTTP日期，无法解析时返回-1
+     */
+    static long parseRetryAfter(Header header) {
+        if (header == null || header.getValue() == null) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+        }
+    }
+
+    private static Set<Integer> parseStatuses(String statuses) {
+        Set<Integer> result = new HashSet<>();
+        for (String status : statuses.split("[,;\\s]+")) {
+            if (!status.isEmpty()) {
+                result.add(Integer.valueOf(status));
+            }
+        }
+        return result;
+    }
+
+    private RetryBudget budget() {
+        RetryBudget current = this.budget;
+        if (current == null) {
+            synchronized (this) {
+                if (this.budget == null) {
+                    this.budget = new RetryBudget(this.budgetRatio, this.budgetCapacity);
+                }
+                current = this.budget;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 已发起的重试总次数
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * 因重试预算耗尽而放弃的重试次数
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.get();
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public void setInitialDelay(long initialDelay) {
+        this.initialDelay = initialDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * @param retryStatuses 触发重试的响应状态码，逗号分隔
+     */
+    public void setRetryStatuses(String retryStatuses) {
+        this.retryStatuses = parseStatuses(retryStatuses);
+    }
+
+    public boolean isRetryNonIdempotent() {
+        return retryNonIdempotent;
+    }
+
+    public void setRetryNonIdempotent(boolean retryNonIdempotent) {
+        this.retryNonIdempotent = retryNonIdempotent;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    /**
+     * @param budgetRatio 重试次数占请求数的比例上限，如0.1表示10%
+     */
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getBudgetCapacity() {
+        return budgetCapacity;
+    }
+
+    /**
+     * @param budgetCapacity 每个路由允许的突发重试次数
+     */
+    public void setBudgetCapacity(int budgetCapacity) {
+        this.budgetCapacity = budgetCapacity;
+    }
+}
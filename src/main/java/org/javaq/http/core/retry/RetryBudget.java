@@ -0,0 +1,90 @@
+package org.javaq.http.core.retry;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按路由统计的重试令牌桶：每个请求存入ratio个令牌，每次重试取出1个，桶容量为maxTokens且初始为满。
+ * 持续故障时重试次数被限制在流量的ratio比例以内，避免重试放大故障服务的负载；令牌以千分之一为单位用CAS更新，无锁。
+ * 路由数有上限，空闲超过10分钟的路由被移除，再次访问时重新从满桶开始，避免访问大量不同主机时无限增长
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private static final int MAX_ROUTES = 10000;
+
+    private static final long IDLE_EXPIRY = TimeUnit.MINUTES.toNanos(10);
+
+    private final LoadingCache<String, AtomicLong> buckets;
+
+    private final long deposit;
+
+    private final long capacity;
+
+    /**
+     * @param ratio     每个请求存入的令牌数，如0.1表示重试不超过流量的10%
+     * @param maxTokens 桶容量，允许的突发重试次数
+     */
+    public RetryBudget(double ratio, int maxTokens) {
+        this(ratio, maxTokens, MAX_ROUTES, IDLE_EXPIRY, Ticker.systemTicker());
+    }
+
+    RetryBudget(double ratio, int maxTokens, int maxRoutes, long idleExpiry, Ticker ticker) {
+        this.deposit = Math.round(ratio * SCALE);
+        this.capacity = maxTokens * SCALE;
+        this.buckets = CacheBuilder.newBuilder()
+                .maximumSize(maxRoutes)
+                .expireAfterAccess(idleExpiry, TimeUnit.NANOSECONDS)
+                .ticker(ticker)
+                .build(new CacheLoader<String, AtomicLong>() {
+                    @Override
+                    public AtomicLong load(String route) {
+                        return new AtomicLong(capacity);
+                    }
+                });
+    }
+
+    public void deposit(String route) {
+        AtomicLong bucket = bucketOf(route);
+        long current;
+        do {
+            current = bucket.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!bucket.compareAndSet(current, Math.min(capacity, current + deposit)));
+    }
+
+    /**
+     * @return 是否取得令牌，未取得时不应重试
+     */
+    public boolean tryWithdraw(String route) {
+        AtomicLong bucket = bucketOf(route);
+        long current;
+        do {
+            current = bucket.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!bucket.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    public double getTokens(String route) {
+        return (double) bucketOf(route).get() / SCALE;
+    }
+
+    long getRouteCount() {
+        return buckets.size();
+    }
+
+    private AtomicLong bucketOf(String route) {
+        return buckets.getUnchecked(route);
+    }
+}
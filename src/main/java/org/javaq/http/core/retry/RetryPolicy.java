@@ -0,0 +1,31 @@
+package org.javaq.http.core.retry;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import java.io.IOException;
+
+/**
+ * 请求重试策略，配置后替代HttpClient内置的立即重试；返回值为重试前等待的毫秒数，小于0表示不重试
+ */
+public interface RetryPolicy {
+
+    /**
+     * 每个请求首次执行前调用一次，重试不会再次调用
+     */
+    void onRequest(HttpRequestBase request);
+
+    /**
+     * @param executionCount 已执行次数，首次失败时为1
+     * @param context        本次执行的上下文，可据此判断请求是否已发出
+     */
+    long retryOnException(HttpRequestBase request, IOException exception, int executionCount, HttpClientContext context);
+
+    /**
+     * 收到响应后、交给ResponseHandler之前调用
+     *
+     * @param executionCount 已执行次数，首次响应时为1
+     */
+    long retryOnResponse(HttpRequestBase request, HttpResponse response, int executionCount, HttpClientContext context);
+}
@@ -0,0 +1,169 @@
+package org.javaq.http.core.ssl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.javaq.http.common.logger.Logger;
+import org.javaq.http.common.logger.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * 监听证书和私钥文件变化，变化平息quietPeriod毫秒后回调一次，避免证书批量替换过程中多次重建
+ */
+public class CertificateWatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CertificateWatcher.class);
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+
+    /**
+     * 递归监听的目录，目录下任意文件变化都会触发回调
+     */
+    private final Set<WatchKey> watchedTrees = Collections.newSetFromMap(new ConcurrentHashMap<WatchKey, Boolean>());
+
+    /**
+     * 单独监听的文件，所在目录中其它文件的变化会被忽略
+     */
+    private final Set<Path> watchedFiles = new HashSet<>();
+
+    private final ExecutorService executor;
+
+    private final long quietPeriod;
+
+    private final Runnable callback;
+
+    /**
+     * @param paths       监听的文件或目录，目录会递归监听
+     * @param quietPeriod 静默时间，毫秒
+     * @param callback    文件变化后的回调
+     */
+    public CertificateWatcher(List<Path> paths, long quietPeriod, Runnable callback) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.quietPeriod = quietPeriod;
+        this.callback = callback;
+        for (Path path : paths) {
+            Path absolute = path.toAbsolutePath().normalize();
+            if (Files.isDirectory(absolute)) {
+                registerTree(absolute);
+            } else {
+                watchedFiles.add(absolute);
+                Path dir = absolute.getParent();
+                watchedDirs.put(register(dir), dir);
+            }
+        }
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("httpclient-cert-watcher")
+                .setDaemon(true)
+                .build());
+    }
+
+    public void start() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.warn("Fail to close certificate watch service", e);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!handle(watchService.take())) {
+                    continue;
+                }
+                WatchKey key;
+                while ((key = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS)) != null) {
+                    handle(key);
+                }
+                try {
+                    callback.run();
+                } catch (Exception e) {
+                    LOGGER.warn("Fail to reload certificates", e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutdown
+        }
+    }
+
+    /**
+     * @return 是否有关注的文件发生变化
+     */
+    private boolean handle(WatchKey key) {
+        boolean changed = false;
+        boolean tree = watchedTrees.contains(key);
+        Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || dir == null) {
+                changed = true;
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (tree) {
+                changed = true;
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+                    try {
+                        registerTree(child);
+                    } catch (IOException e) {
+                        LOGGER.warn("Fail to watch certificate directory " + child, e);
+                    }
+                }
+            } else if (watchedFiles.contains(child)) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void registerTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = register(dir);
+                watchedDirs.put(key, dir);
+                watchedTrees.add(key);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private WatchKey register(Path dir) throws IOException {
+        return dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    }
+}
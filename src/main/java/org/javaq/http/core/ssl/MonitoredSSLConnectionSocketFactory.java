@@ -0,0 +1,41 @@
+package org.javaq.http.core.ssl;
+
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * 统计完整握手与会话复用握手次数的SSL socket工厂
+ * <p>
+ * 以目标主机和端口创建SSLSocket，JSSE据此在SSLContext的客户端会话缓存中按主机复用会话
+ */
+public class MonitoredSSLConnectionSocketFactory extends SSLConnectionSocketFactory {
+
+    private final TlsHandshakeMetrics handshakeMetrics;
+
+    public MonitoredSSLConnectionSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier, TlsHandshakeMetrics handshakeMetrics) {
+        super(sslContext, hostnameVerifier);
+        this.handshakeMetrics = handshakeMetrics;
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+        long start = System.currentTimeMillis();
+        Socket layered;
+        try {
+            layered = super.createLayeredSocket(socket, target, port, context);
+        } catch (IOException e) {
+            handshakeMetrics.recordFailed();
+            throw e;
+        }
+        if (layered instanceof SSLSocket) {
+            handshakeMetrics.record(((SSLSocket) layered).getSession(), start);
+        }
+        return layered;
+    }
+}
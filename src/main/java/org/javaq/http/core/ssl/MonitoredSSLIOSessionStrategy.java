@@ -0,0 +1,47 @@
+package org.javaq.http.core.ssl;
+
+import org.apache.http.HttpHost;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLIOSession;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+
+/**
+ * 统计NIO连接完整握手与会话复用握手次数的SSL策略，握手在I/O线程上异步完成，开始时间保存在连接属性中
+ */
+public class MonitoredSSLIOSessionStrategy extends SSLIOSessionStrategy {
+
+    private static final String HANDSHAKE_START = "http.ssl.handshake-start";
+
+    private final TlsHandshakeMetrics handshakeMetrics;
+
+    public MonitoredSSLIOSessionStrategy(SSLContext sslContext, HostnameVerifier hostnameVerifier, TlsHandshakeMetrics handshakeMetrics) {
+        super(sslContext, hostnameVerifier);
+        this.handshakeMetrics = handshakeMetrics;
+    }
+
+    @Override
+    public SSLIOSession upgrade(HttpHost host, IOSession iosession) throws IOException {
+        iosession.setAttribute(HANDSHAKE_START, System.currentTimeMillis());
+        return super.upgrade(host, iosession);
+    }
+
+    @Override
+    protected void verifySession(HttpHost host, IOSession iosession, SSLSession sslsession) throws SSLException {
+        try {
+            super.verifySession(host, iosession, sslsession);
+        } catch (SSLException e) {
+            handshakeMetrics.recordFailed();
+            throw e;
+        }
+        Object start = iosession.getAttribute(HANDSHAKE_START);
+        if (start instanceof Long) {
+            handshakeMetrics.record(sslsession, (Long) start);
+        }
+    }
+}
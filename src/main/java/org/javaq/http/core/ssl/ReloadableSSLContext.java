@@ -0,0 +1,152 @@
+package org.javaq.http.core.ssl;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 可原子替换的SSLContext：所有操作委托给当前SSLContext。
+ * 连接工厂会缓存SSLSocketFactory，因此返回的SSLSocketFactory同样在每次建连时读取当前SSLContext，替换后新连接立即使用新证书，已建立的连接不受影响
+ */
+public class ReloadableSSLContext extends SSLContext {
+
+    private final DelegatingSSLContextSpi spi;
+
+    public ReloadableSSLContext(SSLContext initial) {
+        this(new DelegatingSSLContextSpi(initial), initial);
+    }
+
+    private ReloadableSSLContext(DelegatingSSLContextSpi spi, SSLContext initial) {
+        super(spi, initial.getProvider(), initial.getProtocol());
+        this.spi = spi;
+    }
+
+    public void swap(SSLContext sslContext) {
+        spi.current.set(sslContext);
+    }
+
+    public SSLContext current() {
+        return spi.current.get();
+    }
+
+    private static class DelegatingSSLContextSpi extends SSLContextSpi {
+
+        private final AtomicReference<SSLContext> current;
+
+        private final SSLSocketFactory socketFactory;
+
+        DelegatingSSLContextSpi(SSLContext initial) {
+            this.current = new AtomicReference<>(initial);
+            this.socketFactory = new DelegatingSSLSocketFactory(current);
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) {
+            throw new UnsupportedOperationException("use swap to replace the underlying SSLContext");
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return socketFactory;
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return current.get().getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            return current.get().createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            return current.get().createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return current.get().getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return current.get().getClientSessionContext();
+        }
+
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return current.get().getDefaultSSLParameters();
+        }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return current.get().getSupportedSSLParameters();
+        }
+    }
+
+    private static class DelegatingSSLSocketFactory extends SSLSocketFactory {
+
+        private final AtomicReference<SSLContext> current;
+
+        DelegatingSSLSocketFactory(AtomicReference<SSLContext> current) {
+            this.current = current;
+        }
+
+        private SSLSocketFactory delegate() {
+            return current.get().getSocketFactory();
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate().getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate().getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return delegate().createSocket();
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            return delegate().createSocket(socket, host, port, autoClose);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return delegate().createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return delegate().createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return delegate().createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return delegate().createSocket(address, port, localAddress, localPort);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.javaq.http.core.ssl;
+
+/**
+ * TLS握手统计，用于确认会话复用是否生效
+ */
+public interface TlsHandshakeMXBean {
+
+    long getFullHandshakes();
+
+    long getResumedHandshakes();
+
+    long getFailedHandshakes();
+
+    /**
+     * 复用会话的握手占成功握手的比例
+     */
+    double getResumptionRatio();
+}
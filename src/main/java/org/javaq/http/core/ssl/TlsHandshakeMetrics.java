@@ -0,0 +1,72 @@
+package org.javaq.http.core.ssl;
+
+import javax.net.ssl.SSLSession;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 同步、NIO和HTTP/2连接共用的TLS握手统计
+ */
+public class TlsHandshakeMetrics implements TlsHandshakeMXBean {
+
+    private final AtomicLong fullHandshakes = new AtomicLong();
+
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+
+    private final AtomicLong failedHandshakes = new AtomicLong();
+
+    /**
+     * 复用的会话保留最初的创建时间，早于本次握手开始时间即视为复用
+     *
+     * @param start 握手开始时间，System.currentTimeMillis()
+     */
+    public void record(SSLSession session, long start) {
+        if (session.getCreationTime() < start) {
+            recordResumed();
+        } else {
+            recordFull();
+        }
+    }
+
+    public void recordFull() {
+        fullHandshakes.incrementAndGet();
+    }
+
+    public void recordResumed() {
+        resumedHandshakes.incrementAndGet();
+    }
+
+    public void recordFailed() {
+        failedHandshakes.incrementAndGet();
+    }
+
+    @Override
+    public long getFullHandshakes() {
+        return fullHandshakes.get();
+    }
+
+    @Override
+    public long getResumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+
+    @Override
+    public long getFailedHandshakes() {
+        return failedHandshakes.get();
+    }
+
+    @Override
+    public double getResumptionRatio() {
+        long resumed = resumedHandshakes.get();
+        long total = resumed + fullHandshakes.get();
+        return total == 0 ? 0 : (double) resumed / total;
+    }
+
+    @Override
+    public String toString() {
+        return "TlsHandshakeMetrics{" +
+                "fullHandshakes=" + getFullHandshakes() +
+                ", resumedHandshakes=" + getResumedHandshakes() +
+                ", failedHandshakes=" + getFailedHandshakes() +
+                '}';
+    }
+}
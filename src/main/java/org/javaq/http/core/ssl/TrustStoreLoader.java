@@ -0,0 +1,365 @@
+package org.javaq.http.core.ssl;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.IOUtils;
+import org.javaq.http.common.logger.Logger;
+import org.javaq.http.common.logger.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 由JDK默认信任库和证书目录构建信任KeyStore：证书文件并行解析；
+ * 设置缓存目录后，构建结果按所有输入文件的路径和内容计算的SHA-256摘要落盘，文件未变化时重启直接加载缓存，跳过解析；
+ * 索引文件记录文件元数据（路径、大小、修改时间、ctime）对应的内容摘要，元数据未变化时重启连内容摘要也不必计算
+ */
+public class TrustStoreLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrustStoreLoader.class);
+
+    private static final String CACHE_FILE_PREFIX = "truststore-";
+
+    private static final String CACHE_FILE_SUFFIX = ".keystore";
+
+    private static final String INDEX_FILE = "truststore.index";
+
+    private static final ThreadLocal<CertificateFactory> CERTIFICATE_FACTORY = new ThreadLocal<CertificateFactory>() {
+        @Override
+        protected CertificateFactory initialValue() {
+            try {
+                return CertificateFactory.getInstance("X.509");
+            } catch (CertificateException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private final File defaultTrustedFile;
+
+    private final Path trustedCertsPath;
+
+    private final char[] password;
+
+    private final Path cacheDir;
+
+    private volatile boolean loadedFromCache;
+
+    private volatile boolean contentHashed;
+
+    /**
+     * @param defaultTrustedFile JDK默认信任库
+     * @param trustedCertsPath   证书文件或目录
+     * @param password           信任库密码，也用于保护缓存文件
+     * @param cacheDir           缓存目录，为空时不缓存
+     */
+    public TrustStoreLoader(File defaultTrustedFile, String trustedCertsPath, String password, String cacheDir) {
+        this.defaultTrustedFile = defaultTrustedFile;
+        this.trustedCertsPath = Paths.get(trustedCertsPath);
+        this.password = password.toCharArray();
+        this.cacheDir = cacheDir == null || cacheDir.isEmpty() ? null : Paths.get(cacheDir);
+    }
+
+    public KeyStore load() throws Exception {
+        List<Path> certificateFiles = listCertificateFiles();
+        if (cacheDir == null) {
+            return build(certificateFiles);
+        }
+        String metadataKey = metadataKey(certificateFiles);
+        String indexed = readIndex(metadataKey);
+        if (indexed != null) {
+            KeyStore cached = loadCache(cacheFile(indexed));
+            if (cached != null) {
+                loadedFromCache = true;
+                return cached;
+            }
+        }
+        contentHashed = true;
+        String fingerprint = fingerprint(certificateFiles);
+        Path cacheFile = cacheFile(fingerprint);
+        // 索引指向的缓存已确认不可用，不再重复读取
+        KeyStore keyStore = fingerprint.equals(indexed) ? null : loadCache(cacheFile);
+        if (keyStore != null) {
+            loadedFromCache = true;
+        } else {
+            keyStore = build(certificateFiles);
+            writeCache(keyStore, cacheFile);
+        }
+        writeIndex(metadataKey, fingerprint);
+        return keyStore;
+    }
+
+    public boolean isLoadedFromCache() {
+        return loadedFromCache;
+    }
+
+    /**
+     * 本次加载是否读取了输入文件内容计算摘要，元数据命中索引时为false
+     */
+    public boolean isContentHashed() {
+        return contentHashed;
+    }
+
+    private Path cacheFile(String fingerprint) {
+        return cacheDir.resolve(CACHE_FILE_PREFIX + fingerprint + CACHE_FILE_SUFFIX);
+    }
+
+    private List<Path> listCertificateFiles() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        Files.walkFileTree(trustedCertsPath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+        return files;
+    }
+
+    private KeyStore build(List<Path> certificateFiles) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        InputStream in = new FileInputStream(defaultTrustedFile);
+        try {
+            keyStore.load(in, password);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        List<Collection<? extends Certificate>> certificates = parse(certificateFiles);
+        for (int i = 0; i < certificateFiles.size(); i++) {
+            String alias = certificateFiles.get(i).toString();
+            int index = 0;
+            for (Certificate certificate : certificates.get(i)) {
+                keyStore.setCertificateEntry(index == 0 ? alias : alias + "#" + index, certificate);
+                index++;
+            }
+        }
+        return keyStore;
+    }
+
+    private List<Collection<? extends Certificate>> parse(List<Path> certificateFiles) throws Exception {
+        int threads = Math.min(certificateFiles.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            List<Collection<? extends Certificate>> certificates = new ArrayList<>(certificateFiles.size());
+            for (Path file : certificateFiles) {
+                certificates.add(parse(file));
+            }
+            return certificates;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("httpclient-cert-parser-%d")
+                .setDaemon(true)
+                .build());
+        try {
+            List<Future<Collection<? extends Certificate>>> futures = new ArrayList<>(certificateFiles.size());
+            for (final Path file : certificateFiles) {
+                futures.add(executor.submit(new Callable<Collection<? extends Certificate>>() {
+                    @Override
+                    public Collection<? extends Certificate> call() throws Exception {
+                        return parse(file);
+                    }
+                }));
+            }
+            List<Collection<? extends Certificate>> certificates = new ArrayList<>(certificateFiles.size());
+            for (Future<Collection<? extends Certificate>> future : futures) {
+                try {
+                    certificates.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+            return certificates;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Collection<? extends Certificate> parse(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        try {
+            return CERTIFICATE_FACTORY.get().generateCertificates(in);
+        } catch (CertificateException e) {
+            throw new RuntimeException("add certificate to key store exception: " + file, e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private String metadataKey(List<Path> certificateFiles) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        updateMetadata(digest, defaultTrustedFile.toPath());
+        for (Path file : certificateFiles) {
+            updateMetadata(digest, file);
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    /**
+     * 只读文件属性不读内容；cp -p等保留大小和修改时间的替换会改变ctime，支持unix属性时一并计入
+     */
+    private void updateMetadata(MessageDigest digest, Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        StringBuilder sb = new StringBuilder();
+        sb.append(file.toAbsolutePath()).append('|').append(attrs.size()).append('|').append(attrs.lastModifiedTime().toMillis());
+        try {
+            sb.append('|').append(Files.getAttribute(file, "unix:ctime"));
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // 非unix文件系统只用大小和修改时间
+        }
+        digest.update(sb.append('\n').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readIndex(String metadataKey) {
+        Path indexFile = cacheDir.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(indexFile)) {
+            return null;
+        }
+        try {
+            String[] entry = new String(Files.readAllBytes(indexFile), StandardCharsets.UTF_8).trim().split(" ");
+            return entry.length == 2 && entry[0].equals(metadataKey) ? entry[1] : null;
+        } catch (IOException e) {
+            LOGGER.warn("Fail to read trust store cache index " + indexFile, e);
+            return null;
+        }
+    }
+
+    private void writeIndex(String metadataKey, String fingerprint) {
+        Path indexFile = cacheDir.resolve(INDEX_FILE);
+        Path tempFile = null;
+        try {
+            Files.createDirectories(cacheDir);
+            tempFile = Files.createTempFile(cacheDir, INDEX_FILE, ".tmp");
+            Files.write(tempFile, (metadataKey + " " + fingerprint + "\n").getBytes(StandardCharsets.UTF_8));
+            move(tempFile, indexFile);
+        } catch (IOException e) {
+            LOGGER.warn("Fail to write trust store cache index " + indexFile, e);
+            if (tempFile != null) {
+                tempFile.toFile().delete();
+            }
+        }
+    }
+
+    private String fingerprint(List<Path> certificateFiles) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        update(digest, defaultTrustedFile.toPath());
+        for (Path file : certificateFiles) {
+            update(digest, file);
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    /**
+     * 按文件内容计算摘要，元数据变化但内容未变（如touch）时仍能复用缓存；路径决定证书别名，一并计入
+     */
+    private void update(MessageDigest digest, Path file) throws IOException {
+        digest.update((file.toAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[8192];
+        InputStream in = Files.newInputStream(file);
+        try {
+            long size = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+                size += n;
+            }
+            // 长度作为分隔，避免相邻文件内容拼接后摘要相同
+            digest.update((size + "\n").getBytes(StandardCharsets.UTF_8));
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private KeyStore loadCache(Path cacheFile) {
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        InputStream in = null;
+        try {
+            in = Files.newInputStream(cacheFile);
+            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(in, password);
+            return keyStore;
+        } catch (Exception e) {
+            LOGGER.warn("Fail to load trust store cache " + cacheFile + ", rebuild it", e);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免多个进程同时启动时读到写了一半的缓存；写入失败不影响启动
+     */
+    private void writeCache(KeyStore keyStore, Path cacheFile) {
+        Path tempFile = null;
+        try {
+            Files.createDirectories(cacheDir);
+            tempFile = Files.createTempFile(cacheDir, CACHE_FILE_PREFIX, ".tmp");
+            OutputStream out = new FileOutputStream(tempFile.toFile());
+            try {
+                keyStore.store(out, password);
+            } finally {
+                IOUtils.closeQuietly(out);
+            }
+            move(tempFile, cacheFile);
+            deleteStaleCaches(cacheFile);
+        } catch (Exception e) {
+            LOGGER.warn("Fail to write trust store cache " + cacheFile, e);
+            if (tempFile != null) {
+                tempFile.toFile().delete();
+            }
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteStaleCaches(Path cacheFile) throws IOException {
+        DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, CACHE_FILE_PREFIX + "*" + CACHE_FILE_SUFFIX);
+        try {
+            for (Path file : stream) {
+                if (!file.equals(cacheFile)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.javaq.http.core.ssl;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 信任主机列表预先解析为哈希索引，支持逗号、分号或空白分隔；
+ * 精确主机名直接查表，通配符*.partner.com匹配partner.com的任意子域名（不含partner.com本身），按主机名层级逐级查找后缀
+ */
+public class TrustedHostMatcher {
+
+    private static final String WILDCARD_PREFIX = "*.";
+
+    private final Set<String> exactHosts = new HashSet<>();
+
+    private final Set<String> wildcardSuffixes = new HashSet<>();
+
+    public TrustedHostMatcher(String trustedHosts) {
+        for (String host : trustedHosts.split("[,;\\s]+")) {
+            String normalized = normalize(host);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            if (normalized.startsWith(WILDCARD_PREFIX)) {
+                wildcardSuffixes.add(normalized.substring(WILDCARD_PREFIX.length()));
+            } else {
+                exactHosts.add(normalized);
+            }
+        }
+    }
+
+    public boolean matches(String host) {
+        if (host == null) {
+            return false;
+        }
+        String normalized = normalize(host);
+        if (exactHosts.contains(normalized)) {
+            return true;
+        }
+        if (wildcardSuffixes.isEmpty()) {
+            return false;
+        }
+        int dot = normalized.indexOf('.');
+        while (dot >= 0 && dot < normalized.length() - 1) {
+            if (wildcardSuffixes.contains(normalized.substring(dot + 1))) {
+                return true;
+            }
+            dot = normalized.indexOf('.', dot + 1);
+        }
+        return false;
+    }
+
+    private static String normalize(String host) {
+        String normalized = host.trim().toLowerCase(Locale.ROOT);
+        return normalized.endsWith(".") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+}
@@ -0,0 +1,9 @@
+package org.javaq.http.core.timing;
+
+/**
+ * 请求各阶段耗时的监听器，在发起请求的线程上回调，实现应尽量轻量
+ */
+public interface RequestTimingListener {
+
+    void onRequestCompleted(RequestTimings timings);
+}
@@ -0,0 +1,189 @@
+package org.javaq.http.core.timing;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+import java.net.URI;
+
+/**
+ * 单次同步请求各阶段的耗时(纳秒)，重试和重定向产生的耗时会累加
+ * <p>
+ * 同步请求在调用线程上完成，各阶段通过线程上下文记录到当前请求；未注册监听器时不会创建
+ */
+public class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final String method;
+
+    private final URI uri;
+
+    private final long startNanos;
+
+    private long responseHeadersReceivedAt;
+
+    private long leaseNanos;
+
+    private long dnsNanos;
+
+    private long connectNanos;
+
+    private long tlsHandshakeNanos;
+
+    private long requestWriteNanos;
+
+    private long timeToFirstByteNanos;
+
+    private long bodyReadNanos;
+
+    private long totalNanos;
+
+    private Throwable failure;
+
+    private RequestTimings(String method, URI uri) {
+        this.method = method;
+        this.uri = uri;
+        this.startNanos = System.nanoTime();
+    }
+
+    public static RequestTimings begin(HttpRequestBase request) {
+        RequestTimings timings = new RequestTimings(request.getMethod(), request.getURI());
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public void end(Throwable failure) {
+        long now = System.nanoTime();
+        this.failure = failure;
+        this.totalNanos = now - startNanos;
+        if (responseHeadersReceivedAt > 0) {
+            this.bodyReadNanos = now - responseHeadersReceivedAt;
+        }
+        CURRENT.remove();
+    }
+
+    static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    public static void recordLease(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.leaseNanos += nanos;
+        }
+    }
+
+    static void recordDns(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.dnsNanos += nanos;
+        }
+    }
+
+    static void recordConnect(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.connectNanos += nanos;
+        }
+    }
+
+    static void recordTlsHandshake(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.tlsHandshakeNanos += nanos;
+        }
+    }
+
+    static void recordRequestWrite(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.requestWriteNanos += nanos;
+        }
+    }
+
+    static void recordTimeToFirstByte(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.timeToFirstByteNanos += nanos;
+            timings.responseHeadersReceivedAt = System.nanoTime();
+        }
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * 等待连接池分配连接
+     */
+    public long getLeaseNanos() {
+        return leaseNanos;
+    }
+
+    public long getDnsNanos() {
+        return dnsNanos;
+    }
+
+    /**
+     * TCP建连，不含TLS握手
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    public long getTlsHandshakeNanos() {
+        return tlsHandshakeNanos;
+    }
+
+    public long getRequestWriteNanos() {
+        return requestWriteNanos;
+    }
+
+    /**
+     * 请求写完到收到响应头
+     */
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+
+    /**
+     * 收到响应头到响应处理完成
+     */
+    public long getBodyReadNanos() {
+        return bodyReadNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * 请求失败时的异常，成功时为null
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTimings{" +
+                method + " " + uri +
+                ", lease=" + millis(leaseNanos) +
+                ", dns=" + millis(dnsNanos) +
+                ", connect=" + millis(connectNanos) +
+                ", tls=" + millis(tlsHandshakeNanos) +
+                ", write=" + millis(requestWriteNanos) +
+                ", ttfb=" + millis(timeToFirstByteNanos) +
+                ", body=" + millis(bodyReadNanos) +
+                ", total=" + millis(totalNanos) +
+                (failure != null ? ", failure=" + failure : "") +
+                '}';
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3fms", nanos / 1000000.0);
+    }
+}
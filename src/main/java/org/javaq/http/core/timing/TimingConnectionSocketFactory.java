@@ -0,0 +1,37 @@
+package org.javaq.http.core.timing;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * 记录TCP建连耗时的明文socket工厂
+ */
+public class TimingConnectionSocketFactory implements ConnectionSocketFactory {
+
+    private final ConnectionSocketFactory delegate;
+
+    public TimingConnectionSocketFactory(ConnectionSocketFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Socket createSocket(HttpContext context) throws IOException {
+        return delegate.createSocket(context);
+    }
+
+    @Override
+    public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                                InetSocketAddress localAddress, HttpContext context) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        } finally {
+            RequestTimings.recordConnect(System.nanoTime() - start);
+        }
+    }
+}
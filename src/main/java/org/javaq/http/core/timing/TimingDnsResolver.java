@@ -0,0 +1,25 @@
+package org.javaq.http.core.timing;
+
+import org.apache.http.conn.DnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+public class TimingDnsResolver implements DnsResolver {
+
+    private final DnsResolver delegate;
+
+    public TimingDnsResolver(DnsResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        long start = System.nanoTime();
+        try {
+            return delegate.resolve(host);
+        } finally {
+            RequestTimings.recordDns(System.nanoTime() - start);
+        }
+    }
+}
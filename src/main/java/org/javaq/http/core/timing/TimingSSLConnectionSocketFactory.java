@@ -0,0 +1,46 @@
+package org.javaq.http.core.timing;
+
+import org.apache.http.HttpHost;
+import org.apache.http.protocol.HttpContext;
+import org.javaq.http.core.ssl.MonitoredSSLConnectionSocketFactory;
+import org.javaq.http.core.ssl.TlsHandshakeMetrics;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * 分别记录TCP建连和TLS握手耗时的SSL socket工厂
+ */
+public class TimingSSLConnectionSocketFactory extends MonitoredSSLConnectionSocketFactory {
+
+    public TimingSSLConnectionSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier, TlsHandshakeMetrics handshakeMetrics) {
+        super(sslContext, hostnameVerifier, handshakeMetrics);
+    }
+
+    @Override
+    public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                                InetSocketAddress localAddress, HttpContext context) throws IOException {
+        RequestTimings timings = RequestTimings.current();
+        long handshakeBefore = timings != null ? timings.getTlsHandshakeNanos() : 0;
+        long start = System.nanoTime();
+        try {
+            return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        } finally {
+            long handshake = timings != null ? timings.getTlsHandshakeNanos() - handshakeBefore : 0;
+            RequestTimings.recordConnect(System.nanoTime() - start - handshake);
+        }
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return super.createLayeredSocket(socket, target, port, context);
+        } finally {
+            RequestTimings.recordTlsHandshake(System.nanoTime() - start);
+        }
+    }
+}
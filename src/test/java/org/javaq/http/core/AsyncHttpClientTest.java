@@ -0,0 +1,124 @@
+package org.javaq.http.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.javaq.http.HttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncHttpClientTest {
+
+    private final CountDownLatch slowReleased = new CountDownLatch(1);
+
+    private HttpServer server;
+
+    private HttpClient httpClient;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/ok", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, "ok");
+            }
+        });
+        server.createContext("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    slowReleased.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange, "slow");
+            }
+        });
+        server.start();
+
+        httpClient = new HttpClient();
+        httpClient.setJmxEnabled(false);
+        httpClient.setMaxPerRoute(1);
+        httpClient.setSocketTimeout(30000);
+        httpClient.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        slowReleased.countDown();
+        httpClient.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void should_complete_with_response_body() throws Exception {
+        assertEquals("ok", httpClient.getAsync(url("/ok")).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void should_complete_exceptionally_when_connection_refused() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        int port = socket.getLocalPort();
+        socket.close();
+
+        try {
+            httpClient.getAsync("http://127.0.0.1:" + port + "/").get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void should_abort_exchange_when_cancelled() throws Exception {
+        CompletableFuture<String> slow = httpClient.getAsync(url("/slow"));
+        Thread.sleep(200);
+
+        assertTrue(slow.cancel(true));
+
+        // 每个路由只有一个连接，中止后连接立即归还，后续请求不必等待慢请求结束
+        assertEquals("ok", httpClient.getAsync(url("/ok")).get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void should_not_create_async_client_after_destroy() throws Exception {
+        httpClient.destroy();
+
+        try {
+            httpClient.getAsync(url("/ok")).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+}
@@ -0,0 +1,89 @@
+package org.javaq.http.core;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchExecutorTest {
+
+    @Test
+    public void should_return_results_in_input_order_with_failures_isolated() throws Exception {
+        List<String> items = Arrays.asList("a:1", "b:fail", "a:3", "b:4");
+
+        List<BatchResult<String>> results = new BatchExecutor<>(items, resolver(10), new BatchExecutor.Task<String, String>() {
+            @Override
+            public String execute(String item) throws Exception {
+                if (item.endsWith("fail")) {
+                    throw new IOException(item);
+                }
+                Thread.sleep(item.startsWith("a") ? 50 : 0);
+                return item.toUpperCase();
+            }
+        }).execute(4);
+
+        assertEquals("A:1", results.get(0).getValue());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("b:fail", results.get(1).getError().getMessage());
+        assertEquals("A:3", results.get(2).getValue());
+        assertEquals("B:4", results.get(3).getValue());
+    }
+
+    @Test
+    public void should_cap_threads_and_per_route_concurrency() throws Exception {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            items.add((i % 2 == 0 ? "a:" : "b:") + i);
+        }
+        final Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final AtomicInteger runningA = new AtomicInteger();
+        final AtomicInteger maxRunningA = new AtomicInteger();
+
+        List<BatchResult<String>> results = new BatchExecutor<>(items, resolver(2), new BatchExecutor.Task<String, String>() {
+            @Override
+            public String execute(String item) throws Exception {
+                threads.add(Thread.currentThread().getName());
+                if (item.startsWith("a")) {
+                    int running = runningA.incrementAndGet();
+                    maxRunningA.accumulateAndGet(running, Math::max);
+                    Thread.sleep(5);
+                    runningA.decrementAndGet();
+                }
+                return item;
+            }
+        }).execute(3);
+
+        assertEquals(40, results.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(items.get(i), results.get(i).getValue());
+        }
+        assertTrue(threads.size() <= 3);
+        assertTrue(maxRunningA.get() <= 2);
+    }
+
+    private BatchExecutor.RouteResolver<String> resolver(final int maxPerRoute) {
+        return new BatchExecutor.RouteResolver<String>() {
+            @Override
+            public HttpRoute routeOf(String item) {
+                return new HttpRoute(new HttpHost(item.substring(0, item.indexOf(':')), 80));
+            }
+
+            @Override
+            public int maxPerRoute(HttpRoute route) {
+                return maxPerRoute;
+            }
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package org.javaq.http.core;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class ChunkResponseHandlerTest {
+
+    @Test
+    public void should_deliver_body_in_chunks_of_configured_size() throws Exception {
+        byte[] body = "0123456789".getBytes("UTF-8");
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        final AtomicInteger chunks = new AtomicInteger();
+
+        new ChunkResponseHandler(new ChunkConsumer() {
+            @Override
+            public void onChunk(ByteBuffer chunk) throws IOException {
+                assertTrue(chunk.remaining() <= 4);
+                chunks.incrementAndGet();
+                while (chunk.hasRemaining()) {
+                    received.write(chunk.get());
+                }
+            }
+        }, 4).handleResponse(response(200, body));
+
+        assertArrayEquals(body, received.toByteArray());
+        assertEquals(3, chunks.get());
+    }
+
+    @Test(expected = HttpResponseException.class)
+    public void should_throw_on_error_status() throws Exception {
+        new ChunkResponseHandler(new ChunkConsumer() {
+            @Override
+            public void onChunk(ByteBuffer chunk) {
+            }
+        }).handleResponse(response(503, new byte[0]));
+    }
+
+    private HttpResponse response(int status, byte[] body) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+        response.setEntity(new ByteArrayEntity(body));
+        return response;
+    }
+}
@@ -0,0 +1,56 @@
+package org.javaq.http.core;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
+import org.javaq.http.HttpClient;
+import org.javaq.http.core.compress.CompressingEntity;
+import org.javaq.http.core.compress.Compression;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestCompressionTest {
+
+    @Test
+    public void should_leave_entity_with_content_coding_unchanged() {
+        HttpClient httpClient = httpClient(0);
+        for (String coding : new String[]{"gzip", "x-gzip", "deflate", "br", "identity, GZIP"}) {
+            ByteArrayEntity entity = new ByteArrayEntity(new byte[1024]);
+            entity.setContentEncoding(coding);
+
+            assertSame(coding, entity, httpClient.compress(entity, Compression.GZIP));
+        }
+    }
+
+    @Test
+    public void should_compress_entity_with_charset_in_content_encoding() {
+        StringEntity entity = new StringEntity("{\"name\":\"compress me\"}", "UTF-8");
+        entity.setContentEncoding("UTF-8");
+
+        assertTrue(httpClient(0).compress(entity, Compression.GZIP) instanceof CompressingEntity);
+    }
+
+    @Test
+    public void should_compress_only_from_threshold_or_unknown_length() {
+        HttpClient httpClient = httpClient(100);
+        HttpEntity small = new ByteArrayEntity(new byte[99]);
+        HttpEntity large = new ByteArrayEntity(new byte[100]);
+        HttpEntity streaming = new InputStreamEntity(new ByteArrayInputStream(new byte[10]), -1);
+
+        assertSame(small, httpClient.compress(small, Compression.GZIP));
+        assertTrue(httpClient.compress(large, Compression.GZIP) instanceof CompressingEntity);
+        assertTrue(httpClient.compress(streaming, Compression.DEFLATE) instanceof CompressingEntity);
+        assertSame(large, httpClient.compress(large, Compression.NONE));
+    }
+
+    private static HttpClient httpClient(long threshold) {
+        HttpClient httpClient = new HttpClient();
+        httpClient.setRequestCompressionThreshold(threshold);
+        return httpClient;
+    }
+}
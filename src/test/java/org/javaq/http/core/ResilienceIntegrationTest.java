@@ -0,0 +1,261 @@
+package org.javaq.http.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.HttpGet;
+import org.javaq.http.HttpClient;
+import org.javaq.http.core.breaker.CircuitBreaker;
+import org.javaq.http.core.breaker.CircuitBreakerOpenException;
+import org.javaq.http.core.breaker.CircuitBreakerRegistry;
+import org.javaq.http.core.breaker.CircuitState;
+import org.javaq.http.core.hedge.HedgingPolicy;
+import org.javaq.http.core.lb.LoadBalancedService;
+import org.javaq.http.core.lb.ServiceEndpoint;
+import org.javaq.http.core.limit.AdaptiveConcurrencyLimiter;
+import org.javaq.http.core.limit.ConcurrencyLimitExceededException;
+import org.javaq.http.core.pool.Routes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 通过BaseHttpClient对本地服务验证对冲、熔断、自适应并发和负载均衡的组合行为
+ */
+public class ResilienceIntegrationTest {
+
+    private static final String SERVICE = "http://backend";
+
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    private final AtomicInteger hedgeCalls = new AtomicInteger();
+
+    private final AtomicInteger failCalls = new AtomicInteger();
+
+    private HttpServer server;
+
+    private LoadBalancedService service;
+
+    private HttpClient httpClient;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/ok", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, "ok");
+            }
+        });
+        server.createContext("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                awaitRelease();
+                respond(exchange, 200, "slow");
+            }
+        });
+        server.createContext("/hedge", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // 只有第一个请求慢，对冲副本立即返回
+                if (hedgeCalls.incrementAndGet() == 1) {
+                    awaitRelease();
+                }
+                respond(exchange, 200, "hedge");
+            }
+        });
+        server.createContext("/fail", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                failCalls.incrementAndGet();
+                respond(exchange, 500, "fail");
+            }
+        });
+        server.start();
+
+        service = new LoadBalancedService();
+        service.setName("backend");
+        service.setEndpoints("127.0.0.1:" + server.getAddress().getPort());
+
+        httpClient = new HttpClient();
+        httpClient.setJmxEnabled(false);
+        httpClient.setSocketTimeout(30000);
+        httpClient.setServices(Collections.singletonList(service));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        released.countDown();
+        httpClient.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void should_not_count_aborted_hedge_loser_as_failure() throws Exception {
+        HedgingPolicy hedgingPolicy = new HedgingPolicy();
+        hedgingPolicy.setDelay(100);
+        hedgingPolicy.setBudgetCapacity(1);
+        CircuitBreakerRegistry registry = registry();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        httpClient.setHedgingPolicy(hedgingPolicy);
+        httpClient.setCircuitBreakerRegistry(registry);
+        httpClient.setConcurrencyLimiter(limiter);
+        httpClient.afterPropertiesSet();
+
+        assertEquals("hedge", httpClient.get(SERVICE + "/hedge"));
+
+        assertEquals(1, hedgingPolicy.getHedgeWins());
+        CircuitBreaker circuitBreaker = registry.of(backend());
+        assertEquals(1, circuitBreaker.getBufferedCalls());
+        assertEquals(0, circuitBreaker.getFailureRate(), 0);
+        assertEquals(0, limiter.get(backend()).getInFlight());
+        ServiceEndpoint endpoint = service.getEndpointList().get(0);
+        assertEquals(0, endpoint.getFailures());
+        assertEquals(0, endpoint.getInFlight());
+        hedgingPolicy.shutdown();
+    }
+
+    @Test
+    public void should_reject_when_circuit_is_open_and_restore_uri() throws Exception {
+        CircuitBreakerRegistry registry = registry();
+        httpClient.setCircuitBreakerRegistry(registry);
+        httpClient.afterPropertiesSet();
+        openCircuit(registry);
+
+        HttpGet request = new HttpGet(SERVICE + "/fail");
+        try {
+            httpClient.execute(request);
+            fail();
+        } catch (CircuitBreakerOpenException e) {
+            assertEquals(Routes.name(backend()), e.getRoute());
+        }
+        assertEquals(URI.create(SERVICE + "/fail"), request.getURI());
+
+        HttpGet asyncRequest = new HttpGet(SERVICE + "/fail");
+        CompletableFuture<String> future = httpClient.executeAsync(asyncRequest, -1, -1, "UTF-8");
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(URI.create(SERVICE + "/fail"), asyncRequest.getURI());
+
+        assertEquals(2, failCalls.get());
+        assertEquals(2, registry.getRejectedCalls());
+    }
+
+    @Test
+    public void should_return_half_open_permit_when_async_request_is_cancelled() throws Exception {
+        CircuitBreakerRegistry registry = registry();
+        registry.setWaitDurationInOpen(500);
+        registry.setPermittedCallsInHalfOpen(1);
+        httpClient.setCircuitBreakerRegistry(registry);
+        httpClient.afterPropertiesSet();
+        openCircuit(registry);
+        Thread.sleep(600);
+
+        CompletableFuture<String> probe = httpClient.getAsync(SERVICE + "/slow");
+        Thread.sleep(100);
+        assertEquals(CircuitState.HALF_OPEN, registry.of(backend()).getState());
+        assertTrue(probe.cancel(true));
+        Thread.sleep(100);
+
+        // 被取消的探测请求归还了名额，不必等到下一个等待周期
+        assertEquals("ok", httpClient.get(SERVICE + "/ok"));
+        assertEquals(CircuitState.CLOSED, registry.of(backend()).getState());
+    }
+
+    @Test
+    public void should_shed_when_concurrency_limit_is_reached_and_restore_uri() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        limiter.setInitialLimit(1);
+        limiter.setMinLimit(1);
+        limiter.setMaxLimit(1);
+        httpClient.setConcurrencyLimiter(limiter);
+        httpClient.afterPropertiesSet();
+
+        CompletableFuture<String> slow = httpClient.getAsync(SERVICE + "/slow");
+        Thread.sleep(100);
+
+        HttpGet request = new HttpGet(SERVICE + "/ok");
+        try {
+            httpClient.execute(request);
+            fail();
+        } catch (ConcurrencyLimitExceededException e) {
+            assertEquals(1, e.getLimit());
+        }
+        assertEquals(URI.create(SERVICE + "/ok"), request.getURI());
+        assertEquals(1, limiter.getShedCalls());
+
+        released.countDown();
+        assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", httpClient.get(SERVICE + "/ok"));
+        assertEquals(0, limiter.get(backend()).getInFlight());
+    }
+
+    @Test
+    public void should_restore_logical_uri_after_load_balanced_request() throws Exception {
+        httpClient.afterPropertiesSet();
+
+        HttpGet request = new HttpGet(SERVICE + "/ok?q=1");
+        assertEquals("ok", httpClient.execute(request));
+        assertEquals(URI.create(SERVICE + "/ok?q=1"), request.getURI());
+
+        HttpGet asyncRequest = new HttpGet(SERVICE + "/ok");
+        assertEquals("ok", httpClient.executeAsync(asyncRequest, -1, -1, "UTF-8").get(5, TimeUnit.SECONDS));
+        assertEquals(URI.create(SERVICE + "/ok"), asyncRequest.getURI());
+        assertEquals(2, service.getEndpointList().get(0).getRequests());
+    }
+
+    private void openCircuit(CircuitBreakerRegistry registry) {
+        for (int i = 0; i < 2; i++) {
+            try {
+                httpClient.get(SERVICE + "/fail");
+            } catch (IOException e) {
+                // 500
+            }
+        }
+        assertEquals(CircuitState.OPEN, registry.of(backend()).getState());
+    }
+
+    private URI backend() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    private static CircuitBreakerRegistry registry() {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        registry.setWindowSize(2);
+        registry.setMinimumCalls(2);
+        registry.setWaitDurationInOpen(60000);
+        return registry;
+    }
+
+    private void awaitRelease() {
+        try {
+            released.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+}
@@ -0,0 +1,101 @@
+package org.javaq.http.core;
+
+import org.javaq.http.core.ssl.ReloadableSSLContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SSLContextFactoryTest {
+
+    /**
+     * 等待超过CertificateWatcher静默时间(1000毫秒)后再判断是否重建
+     */
+    private static final long RELOAD_WAIT = 3000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File privateKeyFile;
+
+    private SSLContextFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        privateKeyFile = new File(folder.getRoot(), "client.keystore");
+        copyKeyStore();
+        factory = new SSLContextFactory();
+        factory.setPrivateKeyPath(privateKeyFile.getPath());
+        factory.setPrivateKeyPassword("123456");
+        factory.setReloadEnabled(true);
+        factory.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        factory.destroy();
+    }
+
+    @Test
+    public void should_swap_context_when_watched_keystore_is_rewritten() throws Exception {
+        ReloadableSSLContext sslContext = (ReloadableSSLContext) factory.getSslContext();
+        SSLContext initial = sslContext.current();
+
+        copyKeyStore();
+
+        assertTrue(awaitSwap(sslContext, initial));
+        assertSame(sslContext, factory.getSslContext());
+    }
+
+    @Test
+    public void should_keep_previous_context_when_rewritten_keystore_is_invalid() throws Exception {
+        ReloadableSSLContext sslContext = (ReloadableSSLContext) factory.getSslContext();
+        SSLContext initial = sslContext.current();
+
+        Files.write(privateKeyFile.toPath(), "corrupt".getBytes(StandardCharsets.UTF_8));
+        Thread.sleep(RELOAD_WAIT);
+
+        assertSame(initial, sslContext.current());
+    }
+
+    @Test
+    public void should_stop_watching_after_destroy() throws Exception {
+        ReloadableSSLContext sslContext = (ReloadableSSLContext) factory.getSslContext();
+        SSLContext initial = sslContext.current();
+
+        factory.destroy();
+        copyKeyStore();
+        Thread.sleep(RELOAD_WAIT);
+
+        assertSame(initial, sslContext.current());
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertTrue(!thread.getName().equals("httpclient-cert-watcher") || !thread.isAlive());
+        }
+    }
+
+    private boolean awaitSwap(ReloadableSSLContext sslContext, SSLContext initial) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + RELOAD_WAIT * 2;
+        while (System.currentTimeMillis() < deadline) {
+            if (sslContext.current() != initial) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    private void copyKeyStore() throws Exception {
+        Files.copy(Paths.get("ssl/kamd.keystore"), privateKeyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,164 @@
+package org.javaq.http.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class SingleFlightTest {
+
+    @Test
+    public void should_share_one_call_between_concurrent_callers() throws Exception {
+        final SingleFlight<String> singleFlight = new SingleFlight<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final int callers = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return singleFlight.execute("GET http://127.0.0.1/hot", new SingleFlight.Call<String>() {
+                        @Override
+                        public String call() throws IOException {
+                            calls.incrementAndGet();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                throw new IOException(e);
+                            }
+                            return "value";
+                        }
+                    });
+                }
+            }));
+        }
+        while (singleFlight.getExecutionCount() + singleFlight.getCollapsedCount() < callers) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getExecutionCount());
+        assertEquals(callers - 1, singleFlight.getCollapsedCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void should_propagate_failure_and_forget_key() throws Exception {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        try {
+            singleFlight.execute("key", new SingleFlight.Call<String>() {
+                @Override
+                public String call() throws IOException {
+                    throw new IOException("boom");
+                }
+            });
+        } finally {
+            assertEquals(0, singleFlight.getInFlightCount());
+        }
+    }
+
+    @Test
+    public void should_stop_waiting_after_timeout_without_cancelling_leader() throws Exception {
+        final SingleFlight<String> singleFlight = new SingleFlight<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = startLeader(singleFlight, release);
+
+        long start = System.nanoTime();
+        try {
+            singleFlight.execute("key", 100, call("follower"));
+            fail();
+        } catch (InterruptedIOException e) {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        }
+        assertEquals(1, singleFlight.getTimeoutCount());
+
+        release.countDown();
+        assertEquals("leader", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void should_stop_waiting_when_interrupted() throws Exception {
+        final SingleFlight<String> singleFlight = new SingleFlight<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = startLeader(singleFlight, release);
+
+        final Thread caller = Thread.currentThread();
+        Thread interrupter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                caller.interrupt();
+            }
+        });
+        interrupter.start();
+        try {
+            singleFlight.execute("key", 0, call("follower"));
+            fail();
+        } catch (InterruptedIOException e) {
+            assertTrue(Thread.interrupted());
+        }
+
+        release.countDown();
+        assertEquals("leader", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    private static Future<String> startLeader(final SingleFlight<String> singleFlight, final CountDownLatch release) throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> leader = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return singleFlight.execute("key", new SingleFlight.Call<String>() {
+                    @Override
+                    public String call() throws IOException {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        return "leader";
+                    }
+                });
+            }
+        });
+        executor.shutdown();
+        while (singleFlight.getInFlightCount() == 0) {
+            Thread.sleep(5);
+        }
+        return leader;
+    }
+
+    private static SingleFlight.Call<String> call(final String value) {
+        return new SingleFlight.Call<String>() {
+            @Override
+            public String call() {
+                return value;
+            }
+        };
+    }
+}
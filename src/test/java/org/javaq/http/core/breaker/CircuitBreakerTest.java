@@ -0,0 +1,166 @@
+package org.javaq.http.core.breaker;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class CircuitBreakerTest {
+
+    private static final URI URI = java.net.URI.create("http://127.0.0.1:8080/");
+
+    @Test
+    public void should_open_when_failure_rate_reaches_threshold() {
+        CircuitBreakerRegistry registry = registry();
+        CircuitBreaker circuitBreaker = registry.of(URI);
+
+        for (int i = 0; i < 5; i++) {
+            CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+            assertNotNull(permit);
+            permit.record(false, 0);
+        }
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.tryAcquire().record(true, 0);
+        }
+        assertEquals(CircuitState.CLOSED, circuitBreaker.getState());
+
+        circuitBreaker.tryAcquire().record(true, 0);
+        assertEquals(CircuitState.OPEN, circuitBreaker.getState());
+        assertNull(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void should_open_when_slow_call_rate_reaches_threshold() {
+        CircuitBreakerRegistry registry = registry();
+        registry.setSlowCallDuration(100);
+        registry.setSlowCallRateThreshold(80);
+        CircuitBreaker circuitBreaker = registry.of(URI);
+
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.tryAcquire().record(false, TimeUnit.MILLISECONDS.toNanos(i < 2 ? 10 : 200));
+        }
+
+        assertEquals(CircuitState.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void should_close_after_permitted_calls_succeed_in_half_open() throws InterruptedException {
+        List<String> transitions = new ArrayList<>();
+        CircuitBreakerRegistry registry = registry();
+        registry.setListeners(Collections.<CircuitBreakerListener>singletonList(
+                (route, from, to) -> transitions.add(route + " " + from + "->" + to)));
+        CircuitBreaker circuitBreaker = open(registry);
+
+        Thread.sleep(60);
+        CircuitBreaker.Permit first = circuitBreaker.tryAcquire();
+        CircuitBreaker.Permit second = circuitBreaker.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(circuitBreaker.tryAcquire());
+        assertEquals(CircuitState.HALF_OPEN, circuitBreaker.getState());
+        first.record(false, 0);
+        second.record(false, 0);
+
+        assertEquals(CircuitState.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getBufferedCalls());
+        assertEquals("http://127.0.0.1:8080 HALF_OPEN->CLOSED", transitions.get(transitions.size() - 1));
+        assertEquals(3, registry.getStateTransitions());
+    }
+
+    @Test
+    public void should_reopen_when_probe_fails_in_half_open() throws InterruptedException {
+        CircuitBreakerRegistry registry = registry();
+        CircuitBreaker circuitBreaker = open(registry);
+
+        Thread.sleep(60);
+        circuitBreaker.tryAcquire().record(true, 0);
+
+        assertEquals(CircuitState.OPEN, circuitBreaker.getState());
+        assertNull(circuitBreaker.tryAcquire());
+        assertEquals(1, registry.getOpenCircuits());
+    }
+
+    @Test
+    public void should_not_apply_result_of_call_admitted_before_half_open() throws InterruptedException {
+        CircuitBreakerRegistry registry = registry();
+        registry.setPermittedCallsInHalfOpen(1);
+        CircuitBreaker circuitBreaker = registry.of(URI);
+        CircuitBreaker.Permit inFlight = circuitBreaker.tryAcquire();
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.tryAcquire().record(true, 0);
+        }
+        assertEquals(CircuitState.OPEN, circuitBreaker.getState());
+
+        Thread.sleep(60);
+        CircuitBreaker.Permit probe = circuitBreaker.tryAcquire();
+        assertNotNull(probe);
+        assertEquals(CircuitState.HALF_OPEN, circuitBreaker.getState());
+
+        // 熔断前放行的请求此时才结束，成功或失败都不能决定半开状态的去向
+        inFlight.record(false, 0);
+        assertEquals(CircuitState.HALF_OPEN, circuitBreaker.getState());
+        inFlight.record(true, 0);
+        assertEquals(CircuitState.HALF_OPEN, circuitBreaker.getState());
+
+        probe.record(false, 0);
+        assertEquals(CircuitState.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getBufferedCalls());
+    }
+
+    @Test
+    public void should_admit_another_probe_when_cancelled_probe_releases_permit() throws InterruptedException {
+        CircuitBreakerRegistry registry = registry();
+        CircuitBreaker circuitBreaker = open(registry);
+
+        Thread.sleep(60);
+        CircuitBreaker.Permit cancelled = circuitBreaker.tryAcquire();
+        CircuitBreaker.Permit probe = circuitBreaker.tryAcquire();
+        for (int i = 0; i < 5; i++) {
+            assertNull(circuitBreaker.tryAcquire());
+        }
+
+        cancelled.release();
+        CircuitBreaker.Permit retry = circuitBreaker.tryAcquire();
+        assertNotNull(retry);
+        assertNull(circuitBreaker.tryAcquire());
+        assertEquals(CircuitState.HALF_OPEN, circuitBreaker.getState());
+
+        probe.record(false, 0);
+        retry.record(false, 0);
+        assertEquals(CircuitState.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void should_not_count_released_permit_in_closed_window() {
+        CircuitBreaker circuitBreaker = registry().of(URI);
+
+        circuitBreaker.tryAcquire().release();
+
+        assertEquals(0, circuitBreaker.getBufferedCalls());
+    }
+
+    private static CircuitBreakerRegistry registry() {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        registry.setWindowSize(10);
+        registry.setMinimumCalls(10);
+        registry.setWaitDurationInOpen(50);
+        registry.setPermittedCallsInHalfOpen(2);
+        return registry;
+    }
+
+    private static CircuitBreaker open(CircuitBreakerRegistry registry) {
+        CircuitBreaker circuitBreaker = registry.of(URI);
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.tryAcquire().record(true, 0);
+        }
+        assertEquals(CircuitState.OPEN, circuitBreaker.getState());
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,121 @@
+package org.javaq.http.core.cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.javaq.http.HttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HttpCacheTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private final AtomicInteger freshCalls = new AtomicInteger();
+
+    private final AtomicInteger etagCalls = new AtomicInteger();
+
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    private HttpServer server;
+
+    private HttpClient httpClient;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/fresh", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                freshCalls.incrementAndGet();
+                exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+                respond(exchange, 200, "fresh");
+            }
+        });
+        server.createContext("/etag", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                etagCalls.incrementAndGet();
+                exchange.getResponseHeaders().add("Cache-Control", "max-age=0, must-revalidate");
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                respond(exchange, 200, "etag");
+            }
+        });
+        server.start();
+
+        httpClient = new HttpClient();
+        httpClient.setBeanName("httpCacheTest");
+        httpClient.setCacheEnabled(true);
+        httpClient.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClient.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void should_serve_fresh_response_from_cache() throws Exception {
+        assertEquals("fresh", httpClient.get(url("/fresh")));
+        assertEquals("fresh", httpClient.get(url("/fresh")));
+
+        assertEquals(1, freshCalls.get());
+        assertEquals(1, httpClient.getCacheMetrics().getMissCount());
+        assertEquals(1, httpClient.getCacheMetrics().getHitCount());
+        assertEquals(1, httpClient.getCacheMetrics().getEntryCount());
+    }
+
+    @Test
+    public void should_revalidate_with_etag() throws Exception {
+        assertEquals("etag", httpClient.get(url("/etag")));
+        assertEquals("etag", httpClient.get(url("/etag")));
+
+        assertEquals(2, etagCalls.get());
+        assertEquals(1, notModified.get());
+        assertEquals(1, httpClient.getCacheMetrics().getValidatedCount());
+    }
+
+    @Test
+    public void should_register_cache_mbean_while_running() throws Exception {
+        ObjectName name = new ObjectName("org.javaq.http:type=HttpCache,name=" + ObjectName.quote("httpCacheTest"));
+        httpClient.get(url("/fresh"));
+
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "MissCount"));
+
+        httpClient.destroy();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+}
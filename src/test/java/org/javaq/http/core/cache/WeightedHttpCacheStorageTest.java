@@ -0,0 +1,59 @@
+package org.javaq.http.core.cache;
+
+import org.apache.http.Header;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.cache.HttpCacheEntry;
+import org.apache.http.impl.client.cache.HeapResource;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WeightedHttpCacheStorageTest {
+
+    private static final long MAX_BYTES = 100000;
+
+    @Test
+    public void should_evict_by_bytes_not_by_entry_count() throws Exception {
+        WeightedHttpCacheStorage storage = new WeightedHttpCacheStorage(MAX_BYTES);
+        for (int i = 0; i < 30; i++) {
+            storage.putEntry("large" + i, entry(10000));
+        }
+
+        assertTrue(storage.size() * 10000 <= MAX_BYTES);
+        assertEquals(30 - storage.size(), storage.evictionCount());
+        assertNotNull(storage.getEntry("large29"));
+    }
+
+    @Test
+    public void should_keep_many_small_entries_within_same_budget() throws Exception {
+        WeightedHttpCacheStorage storage = new WeightedHttpCacheStorage(MAX_BYTES);
+        for (int i = 0; i < 50; i++) {
+            storage.putEntry("small" + i, entry(100));
+        }
+
+        assertEquals(50, storage.size());
+        assertEquals(0, storage.evictionCount());
+    }
+
+    @Test
+    public void should_not_keep_entry_larger_than_capacity() throws Exception {
+        WeightedHttpCacheStorage storage = new WeightedHttpCacheStorage(MAX_BYTES);
+
+        storage.putEntry("huge", entry((int) MAX_BYTES));
+
+        assertNull(storage.getEntry("huge"));
+        assertEquals(1, storage.evictionCount());
+    }
+
+    private static HttpCacheEntry entry(int bodySize) {
+        Date now = new Date();
+        return new HttpCacheEntry(now, now, new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"),
+                new Header[0], new HeapResource(new byte[bodySize]));
+    }
+}
@@ -0,0 +1,47 @@
+package org.javaq.http.core.compress;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.StringEntity;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class CompressingEntityTest {
+
+    private static final String JSON = "{\"items\":[1,2,3,4,5,6,7,8,9,10],\"name\":\"compress me\"}";
+
+    @Test
+    public void should_write_gzip_stream_that_round_trips() throws Exception {
+        CompressingEntity entity = new CompressingEntity(new StringEntity(JSON, "UTF-8"), Compression.GZIP);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+
+        assertEquals("gzip", entity.getContentEncoding().getValue());
+        assertTrue(entity.isChunked());
+        assertEquals(JSON, IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), "UTF-8"));
+    }
+
+    @Test
+    public void should_write_zlib_stream_for_deflate() throws Exception {
+        CompressingEntity entity = new CompressingEntity(new StringEntity(JSON, "UTF-8"), Compression.DEFLATE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+
+        assertEquals("deflate", entity.getContentEncoding().getValue());
+        assertEquals(JSON, IOUtils.toString(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray())), "UTF-8"));
+    }
+
+    @Test
+    public void should_parse_compression_name_ignoring_case() {
+        assertEquals(Compression.GZIP, Compression.of("gzip"));
+        assertEquals(Compression.DEFLATE, Compression.of(" Deflate "));
+        assertEquals(Compression.NONE, Compression.of(null));
+    }
+}
@@ -0,0 +1,192 @@
+package org.javaq.http.core.dns;
+
+import org.apache.http.conn.DnsResolver;
+import org.javaq.http.HttpClient;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CachingDnsResolverTest {
+
+    @Test
+    public void should_serve_cached_addresses_and_rotate_order() throws Exception {
+        CountingResolver delegate = new CountingResolver("10.0.0.1", "10.0.0.2", "10.0.0.3");
+        CachingDnsResolver resolver = resolver(delegate, 60000, 30000);
+
+        Set<InetAddress> firstAddresses = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            InetAddress[] addresses = resolver.resolve("example.com");
+            assertEquals(3, addresses.length);
+            firstAddresses.add(addresses[0]);
+        }
+
+        assertEquals(3, firstAddresses.size());
+        assertEquals(1, delegate.calls.get());
+        assertEquals(2, resolver.getCacheHits());
+        assertEquals(1, resolver.getCacheMisses());
+    }
+
+    @Test
+    public void should_resolve_again_after_ttl() throws Exception {
+        CountingResolver delegate = new CountingResolver("10.0.0.1");
+        CachingDnsResolver resolver = resolver(delegate, 20, 10);
+
+        resolver.resolve("example.com");
+        Thread.sleep(30);
+        resolver.resolve("example.com");
+
+        assertEquals(2, delegate.calls.get());
+        assertEquals(2, resolver.getLookups());
+    }
+
+    @Test
+    public void should_refresh_in_background_without_blocking_caller() throws Exception {
+        CountingResolver delegate = new CountingResolver("10.0.0.1");
+        CachingDnsResolver resolver = resolver(delegate, 60000, 20);
+        resolver.start();
+        try {
+            resolver.resolve("example.com");
+            Thread.sleep(30);
+            delegate.addresses = new String[]{"10.0.0.2"};
+
+            assertArrayEquals(new InetAddress[]{InetAddress.getByName("10.0.0.1")}, resolver.resolve("example.com"));
+            for (int i = 0; i < 100 && resolver.getRefreshes() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertArrayEquals(new InetAddress[]{InetAddress.getByName("10.0.0.2")}, resolver.resolve("example.com"));
+        } finally {
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void should_keep_addresses_when_refresh_fails() throws Exception {
+        CountingResolver delegate = new CountingResolver("10.0.0.1");
+        CachingDnsResolver resolver = resolver(delegate, 60000, 20);
+        resolver.start();
+        try {
+            resolver.resolve("example.com");
+            Thread.sleep(30);
+            delegate.addresses = new String[0];
+
+            resolver.resolve("example.com");
+            for (int i = 0; i < 100 && resolver.getLookupFailures() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(resolver.getLookupFailures() > 0);
+            assertArrayEquals(new InetAddress[]{InetAddress.getByName("10.0.0.1")}, resolver.resolve("example.com"));
+        } finally {
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void should_clamp_refresh_after_below_ttl_on_start() {
+        CachingDnsResolver resolver = resolver(new CountingResolver("10.0.0.1"), 1000, 1000);
+        resolver.start();
+        try {
+            assertEquals(500, resolver.getRefreshAfter());
+        } finally {
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void should_refresh_other_hosts_while_one_lookup_hangs() throws Exception {
+        final CountDownLatch released = new CountDownLatch(1);
+        final CountingResolver fast = new CountingResolver("10.0.0.1");
+        CachingDnsResolver resolver = resolver(new DnsResolver() {
+            @Override
+            public InetAddress[] resolve(String host) throws UnknownHostException {
+                if (host.startsWith("slow") && fast.calls.get() > 0) {
+                    try {
+                        released.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return fast.resolve(host);
+            }
+        }, 60000, 20);
+        resolver.start();
+        try {
+            resolver.resolve("slow.example.com");
+            resolver.resolve("example.com");
+            Thread.sleep(30);
+            fast.addresses = new String[]{"10.0.0.2"};
+
+            resolver.resolve("slow.example.com");
+            resolver.resolve("example.com");
+            for (int i = 0; i < 100 && resolver.getRefreshes() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertArrayEquals(new InetAddress[]{InetAddress.getByName("10.0.0.2")}, resolver.resolve("example.com"));
+        } finally {
+            released.countDown();
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void should_stop_only_after_last_sharing_client_destroyed() throws Exception {
+        CachingDnsResolver resolver = resolver(new CountingResolver("10.0.0.1"), 60000, 30000);
+        HttpClient first = httpClient(resolver);
+        HttpClient second = httpClient(resolver);
+
+        first.destroy();
+        assertTrue(resolver.isStarted());
+
+        second.destroy();
+        second.destroy();
+        assertFalse(resolver.isStarted());
+    }
+
+    private static HttpClient httpClient(DnsResolver resolver) throws Exception {
+        HttpClient httpClient = new HttpClient();
+        httpClient.setJmxEnabled(false);
+        httpClient.setDnsResolver(resolver);
+        httpClient.afterPropertiesSet();
+        return httpClient;
+    }
+
+    private static CachingDnsResolver resolver(DnsResolver delegate, long ttl, long refreshAfter) {
+        CachingDnsResolver resolver = new CachingDnsResolver();
+        resolver.setDelegate(delegate);
+        resolver.setTtl(ttl);
+        resolver.setRefreshAfter(refreshAfter);
+        return resolver;
+    }
+
+    private static class CountingResolver implements DnsResolver {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile String[] addresses;
+
+        CountingResolver(String... addresses) {
+            this.addresses = addresses;
+        }
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            calls.incrementAndGet();
+            if (addresses.length == 0) {
+                throw new UnknownHostException(host);
+            }
+            InetAddress[] result = new InetAddress[addresses.length];
+            for (int i = 0; i < addresses.length; i++) {
+                result[i] = InetAddress.getByName(addresses[i]);
+            }
+            return result;
+        }
+    }
+}
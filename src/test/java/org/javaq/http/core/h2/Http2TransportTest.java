@@ -0,0 +1,96 @@
+package org.javaq.http.core.h2;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.StringEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Http2TransportTest {
+
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    private ServerSocket server;
+
+    private Http2Transport transport;
+
+    private String url;
+
+    @Before
+    public void setUp() throws Exception {
+        // 模拟只支持HTTP/1.1的服务端：收到HTTP/2连接前言后直接关闭连接
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        url = "http://127.0.0.1:" + server.getLocalPort() + "/";
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!server.isClosed()) {
+                    try {
+                        Socket socket = server.accept();
+                        accepted.incrementAndGet();
+                        socket.close();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        transport = new Http2Transport(null, null, 1, 2, false, 0, null, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        transport.close();
+        server.close();
+    }
+
+    @Test
+    public void should_retry_idempotent_request_on_io_failure() throws Exception {
+        execute(new HttpGet(url));
+
+        assertEquals(3, accepted.get());
+    }
+
+    @Test
+    public void should_not_retry_non_idempotent_request() throws Exception {
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new StringEntity("{}"));
+        execute(post);
+
+        assertEquals(1, accepted.get());
+    }
+
+    @Test
+    public void should_mark_route_as_http1_when_connection_is_closed_before_any_response() throws Exception {
+        assertTrue(transport.isEnabledFor(URI.create(url)));
+
+        execute(new HttpGet(url));
+
+        assertFalse(transport.isEnabledFor(URI.create(url + "other")));
+    }
+
+    private void execute(HttpRequestBase request) throws IOException {
+        try {
+            transport.execute(request);
+            fail();
+        } catch (Http2NotSupportedException e) {
+            assertEquals(url.substring(0, url.length() - 1), e.getRoute());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.javaq.http.core.hedge;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.Cancellable;
+import org.javaq.http.HttpClient;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HedgingPolicyTest {
+
+    private final HedgingPolicy policy = new HedgingPolicy();
+
+    @After
+    public void tearDown() {
+        policy.shutdown();
+    }
+
+    @Test
+    public void should_take_hedge_result_and_abort_slow_primary() throws IOException {
+        policy.setDelay(20);
+        policy.start(null);
+        final HttpGet primary = new HttpGet("http://127.0.0.1/");
+
+        String result = policy.execute(primary, new HedgingPolicy.Call<String>() {
+            @Override
+            public String call(HttpRequestBase request) throws IOException {
+                return request == primary ? blockUntilAborted(request) : "hedge";
+            }
+        });
+
+        assertEquals("hedge", result);
+        assertTrue(primary.isAborted());
+        assertEquals(1, policy.getHedgedRequests());
+        assertEquals(1, policy.getHedgeWins());
+    }
+
+    @Test
+    public void should_not_hedge_fast_or_unsafe_requests() throws IOException {
+        policy.setDelay(200);
+        policy.start(null);
+        final AtomicInteger calls = new AtomicInteger();
+        HedgingPolicy.Call<String> call = new HedgingPolicy.Call<String>() {
+            @Override
+            public String call(HttpRequestBase request) throws IOException {
+                calls.incrementAndGet();
+                return "ok";
+            }
+        };
+
+        assertEquals("ok", policy.execute(new HttpGet("http://127.0.0.1/"), call));
+        assertEquals("ok", policy.execute(new HttpPost("http://127.0.0.1/"), call));
+
+        assertEquals(2, calls.get());
+        assertEquals(0, policy.getHedgedRequests());
+    }
+
+    @Test
+    public void should_stop_only_after_last_sharing_client_destroyed() throws Exception {
+        HttpClient first = httpClient();
+        HttpClient second = httpClient();
+
+        first.destroy();
+        assertTrue(policy.isStarted());
+
+        second.destroy();
+        second.destroy();
+        assertFalse(policy.isStarted());
+    }
+
+    @Test
+    public void should_stop_hedging_when_budget_exhausted() throws IOException {
+        policy.setDelay(1);
+        policy.setMaxHedgeRatio(0);
+        policy.setBudgetCapacity(1);
+        policy.start(null);
+        HedgingPolicy.Call<String> call = new HedgingPolicy.Call<String>() {
+            @Override
+            public String call(HttpRequestBase request) throws IOException {
+                try {
+                    Thread.sleep(30);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return "ok";
+            }
+        };
+
+        for (int i = 0; i < 3; i++) {
+            policy.execute(new HttpGet("http://127.0.0.1/"), call);
+        }
+
+        assertEquals(1, policy.getHedgedRequests());
+        assertEquals(2, policy.getBudgetExhaustedCount());
+    }
+
+    private static String blockUntilAborted(HttpRequestBase request) throws IOException {
+        final CountDownLatch aborted = new CountDownLatch(1);
+        request.setCancellable(new Cancellable() {
+            @Override
+            public boolean cancel() {
+                aborted.countDown();
+                return true;
+            }
+        });
+        try {
+            aborted.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new InterruptedIOException("Request aborted");
+    }
+
+    private HttpClient httpClient() throws Exception {
+        HttpClient httpClient = new HttpClient();
+        httpClient.setJmxEnabled(false);
+        httpClient.setHedgingPolicy(policy);
+        httpClient.afterPropertiesSet();
+        return httpClient;
+    }
+}
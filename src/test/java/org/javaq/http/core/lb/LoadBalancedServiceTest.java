@@ -0,0 +1,66 @@
+package org.javaq.http.core.lb;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class LoadBalancedServiceTest {
+
+    @Test
+    public void should_rewrite_host_and_keep_path_and_query() {
+        LoadBalancedService service = service("10.0.0.1:8080", LoadBalancingStrategy.P2C);
+
+        URI rewritten = service.choose().rewrite(URI.create("https://user-service/users/1?fields=name"));
+
+        assertEquals("https://10.0.0.1:8080/users/1?fields=name", rewritten.toString());
+    }
+
+    @Test
+    public void p2c_should_avoid_endpoint_with_high_latency() throws InterruptedException {
+        LoadBalancedService service = service("10.0.0.1:8080,10.0.0.2:8080", LoadBalancingStrategy.P2C);
+        ServiceEndpoint slow = service.getEndpointList().get(0);
+        long start = slow.begin();
+        Thread.sleep(50);
+        slow.end(start, false);
+
+        for (int i = 0; i < 20; i++) {
+            assertNotSame(slow, service.choose());
+        }
+    }
+
+    @Test
+    public void p2c_should_penalize_failed_endpoint() {
+        LoadBalancedService service = service("10.0.0.1:8080,10.0.0.2:8080", LoadBalancingStrategy.P2C);
+        ServiceEndpoint failed = service.getEndpointList().get(1);
+        failed.end(failed.begin(), true);
+
+        for (int i = 0; i < 20; i++) {
+            assertNotSame(failed, service.choose());
+        }
+        assertEquals(1, failed.getFailures());
+    }
+
+    @Test
+    public void least_requests_should_choose_endpoint_with_fewest_in_flight() {
+        LoadBalancedService service = service("10.0.0.1:8080,10.0.0.2:8080,10.0.0.3:8080", LoadBalancingStrategy.LEAST_REQUESTS);
+        List<ServiceEndpoint> endpoints = service.getEndpointList();
+        endpoints.get(0).begin();
+        endpoints.get(1).begin();
+
+        assertEquals(endpoints.get(2), service.choose());
+        assertEquals(LoadBalancingStrategy.LEAST_REQUESTS, LoadBalancingStrategy.of("leastRequests"));
+    }
+
+    private static LoadBalancedService service(String endpoints, LoadBalancingStrategy strategy) {
+        LoadBalancedService service = new LoadBalancedService();
+        service.setName("user-service");
+        service.setEndpoints(endpoints);
+        service.setStrategy(strategy);
+        service.init();
+        return service;
+    }
+}
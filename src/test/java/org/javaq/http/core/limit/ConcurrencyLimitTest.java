@@ -0,0 +1,90 @@
+package org.javaq.http.core.limit;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrencyLimitTest {
+
+    private static final URI URI = java.net.URI.create("http://127.0.0.1:8080/");
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void should_shed_requests_over_limit() {
+        ConcurrencyLimit limit = limiter(ConcurrencyLimitAlgorithm.AIMD, 2).of(URI, 100);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(1, limit.getShedCalls());
+
+        limit.release();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    public void aimd_should_increase_when_saturated_and_back_off_on_overload() {
+        ConcurrencyLimit limit = limiter(ConcurrencyLimitAlgorithm.AIMD, 4).of(URI, 100);
+
+        runWindow(limit, 4, 10 * MILLIS, false);
+        assertEquals(5, limit.getLimit());
+
+        runWindow(limit, 5, 10 * MILLIS, true);
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    public void gradient_should_shrink_when_latency_rises() {
+        ConcurrencyLimit limit = limiter(ConcurrencyLimitAlgorithm.GRADIENT, 20).of(URI, 100);
+        for (int i = 0; i < 5; i++) {
+            runWindow(limit, limit.getLimit(), 10 * MILLIS, false);
+        }
+        int grown = limit.getLimit();
+        assertTrue("limit " + grown, grown > 20);
+
+        for (int i = 0; i < 5; i++) {
+            runWindow(limit, limit.getLimit(), 100 * MILLIS, false);
+        }
+        assertTrue("limit " + limit.getLimit(), limit.getLimit() < grown);
+    }
+
+    @Test
+    public void limit_should_not_exceed_ceiling() {
+        AdaptiveConcurrencyLimiter limiter = limiter(ConcurrencyLimitAlgorithm.AIMD, 20);
+        ConcurrencyLimit limit = limiter.of(URI, 8);
+        assertEquals(8, limit.getLimit());
+
+        runWindow(limit, 8, 10 * MILLIS, false);
+        assertEquals(8, limit.getLimit());
+    }
+
+    /**
+     * 并发发出inFlight个请求，再以相同耗时完成一个窗口
+     */
+    private static void runWindow(ConcurrencyLimit limit, int inFlight, long rtt, boolean dropped) {
+        for (int i = 0; i < inFlight; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        for (int i = 0; i < inFlight; i++) {
+            limit.complete(rtt, dropped);
+        }
+        for (int i = inFlight; i < 10; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.complete(rtt, dropped);
+        }
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(ConcurrencyLimitAlgorithm algorithm, int initialLimit) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        limiter.setAlgorithm(algorithm);
+        limiter.setInitialLimit(initialLimit);
+        limiter.setWindowSize(10);
+        return limiter;
+    }
+}
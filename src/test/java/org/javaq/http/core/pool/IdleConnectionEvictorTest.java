@@ -0,0 +1,70 @@
+package org.javaq.http.core.pool;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.javaq.http.HttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class IdleConnectionEvictorTest {
+
+    private HttpServer server;
+
+    private HttpClient httpClient;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] bytes = "ok".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(bytes);
+                out.close();
+            }
+        });
+        server.start();
+
+        httpClient = new HttpClient();
+        httpClient.setJmxEnabled(false);
+        httpClient.setEvictionEnabled(true);
+        httpClient.setEvictionInterval(50L);
+        httpClient.setMaxIdleTime(200L);
+        httpClient.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClient.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void should_close_connections_idle_longer_than_max_idle_time() throws Exception {
+        assertEquals("ok", httpClient.get("http://127.0.0.1:" + server.getAddress().getPort() + "/ok"));
+        assertEquals(1, httpClient.getConnectionManager().getTotalStats().getAvailable());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (httpClient.getConnectionManager().getTotalStats().getAvailable() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(0, httpClient.getConnectionManager().getTotalStats().getAvailable());
+    }
+
+    @Test
+    public void should_relax_stale_check_to_max_idle_time_when_eviction_enabled() {
+        assertEquals(200, httpClient.getConnectionManager().getValidateAfterInactivity());
+    }
+}
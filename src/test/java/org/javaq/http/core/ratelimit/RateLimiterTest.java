@@ -0,0 +1,89 @@
+package org.javaq.http.core.ratelimit;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimiterTest {
+
+    @Test
+    public void should_allow_burst_then_reject_in_fail_fast_mode() throws Exception {
+        RateLimiter rateLimiter = rateLimiter(10, 3, RateLimitMode.FAIL_FAST);
+
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.acquire();
+        }
+        try {
+            rateLimiter.acquire();
+            fail();
+        } catch (RateLimitExceededException e) {
+            assertEquals("api.example.com", e.getRoute());
+        }
+        assertEquals(3, rateLimiter.getPermitted());
+        assertEquals(1, rateLimiter.getRejected());
+    }
+
+    @Test
+    public void should_wait_for_next_permit_in_block_mode() throws Exception {
+        RateLimiter rateLimiter = rateLimiter(20, 1, RateLimitMode.BLOCK);
+
+        rateLimiter.acquire();
+        long start = System.nanoTime();
+        rateLimiter.acquire();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("waited " + elapsed + "ms", elapsed >= 40);
+        assertEquals(1, rateLimiter.getDelayed());
+    }
+
+    @Test
+    public void should_reject_when_wait_exceeds_max_wait() throws Exception {
+        RateLimiter rateLimiter = rateLimiter(1, 1, RateLimitMode.BLOCK);
+        rateLimiter.setMaxWait(100);
+
+        rateLimiter.acquire();
+        assertEquals(-1, rateLimiter.reserve(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertFalse(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    public void should_not_grant_more_than_burst_to_concurrent_callers() throws Exception {
+        final RateLimiter rateLimiter = rateLimiter(1, 50, RateLimitMode.FAIL_FAST);
+        final AtomicInteger granted = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(8);
+        for (int t = 0; t < 8; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100; i++) {
+                        if (rateLimiter.tryAcquire()) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+
+        // 测试期间最多补充一个许可
+        assertTrue("granted " + granted.get(), granted.get() >= 50 && granted.get() <= 51);
+    }
+
+    private static RateLimiter rateLimiter(double permitsPerSecond, int burst, RateLimitMode mode) {
+        RateLimiter rateLimiter = new RateLimiter();
+        rateLimiter.setRoute("api.example.com");
+        rateLimiter.setPermitsPerSecond(permitsPerSecond);
+        rateLimiter.setBurst(burst);
+        rateLimiter.setMode(mode);
+        rateLimiter.init();
+        return rateLimiter;
+    }
+}
@@ -0,0 +1,113 @@
+package org.javaq.http.core.retry;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExponentialBackoffRetryPolicyTest {
+
+    @Test
+    public void should_keep_backoff_within_doubling_ceiling() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+        policy.setInitialDelay(100);
+        policy.setMaxDelay(1000);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(policy.backoff(1) <= 100);
+            assertTrue(policy.backoff(3) <= 400);
+            assertTrue(policy.backoff(40) <= 1000);
+        }
+    }
+
+    @Test
+    public void should_not_wait_when_initial_delay_is_zero() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+        policy.setInitialDelay(0);
+        policy.setMaxDelay(1000);
+
+        for (int i = 1; i <= 40; i++) {
+            assertEquals(0, policy.backoff(i));
+        }
+    }
+
+    @Test
+    public void should_cap_backoff_at_max_delay_when_doubling_overflows() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+        policy.setInitialDelay(Long.MAX_VALUE / 4);
+        policy.setMaxDelay(1000);
+
+        for (int i = 0; i < 100; i++) {
+            long backoff = policy.backoff(40);
+            assertTrue(backoff >= 0 && backoff <= 1000);
+        }
+    }
+
+    @Test
+    public void should_honour_retry_after_and_give_up_when_too_long() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+        HttpGet request = new HttpGet("http://127.0.0.1/");
+
+        assertEquals(1000, policy.retryOnResponse(request, response(503, "1"), 1, HttpClientContext.create()));
+        assertEquals(-1, policy.retryOnResponse(request, response(503, "60"), 1, HttpClientContext.create()));
+        assertEquals(-1, policy.retryOnResponse(request, response(500, null), 1, HttpClientContext.create()));
+        assertEquals(-1, policy.retryOnResponse(request, response(503, null), 3, HttpClientContext.create()));
+    }
+
+    @Test
+    public void should_retry_non_idempotent_request_only_before_connected() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+        HttpPost request = new HttpPost("http://127.0.0.1/");
+
+        assertTrue(policy.retryOnException(request, new ConnectException(), 1, HttpClientContext.create()) >= 0);
+        assertEquals(-1, policy.retryOnException(request, new IOException(), 1, HttpClientContext.create()));
+        assertEquals(-1, policy.retryOnResponse(request, response(503, null), 1, HttpClientContext.create()));
+    }
+
+    @Test
+    public void should_not_retry_read_timeout_but_retry_connect_timeout() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+        HttpGet request = new HttpGet("http://127.0.0.1/");
+
+        assertEquals(-1, policy.retryOnException(request, new SocketTimeoutException(), 1, HttpClientContext.create()));
+        assertTrue(policy.retryOnException(request, new ConnectTimeoutException(), 1, HttpClientContext.create()) >= 0);
+    }
+
+    @Test
+    public void should_stop_retrying_when_budget_exhausted() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+        policy.setBudgetCapacity(2);
+        policy.setBudgetRatio(0.5);
+        HttpGet request = new HttpGet("http://127.0.0.1/");
+
+        int retries = 0;
+        for (int i = 0; i < 10; i++) {
+            policy.onRequest(request);
+            if (policy.retryOnException(request, new ConnectException(), 1, HttpClientContext.create()) >= 0) {
+                retries++;
+            }
+        }
+
+        assertEquals(2 + 5 - 1, retries);
+        assertEquals(10 - retries, policy.getBudgetExhaustedCount());
+    }
+
+    private static HttpResponse response(int status, String retryAfter) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+        if (retryAfter != null) {
+            response.setHeader("Retry-After", retryAfter);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,56 @@
+package org.javaq.http.core.retry;
+
+import com.google.common.base.Ticker;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryBudgetTest {
+
+    private static final String ROUTE = "http://127.0.0.1:8080";
+
+    @Test
+    public void should_limit_retries_to_deposited_tokens() {
+        RetryBudget budget = new RetryBudget(0.5, 1);
+
+        assertTrue(budget.tryWithdraw(ROUTE));
+        assertFalse(budget.tryWithdraw(ROUTE));
+        budget.deposit(ROUTE);
+        assertFalse(budget.tryWithdraw(ROUTE));
+        budget.deposit(ROUTE);
+        assertTrue(budget.tryWithdraw(ROUTE));
+    }
+
+    @Test
+    public void should_forget_idle_routes() {
+        final AtomicLong now = new AtomicLong();
+        RetryBudget budget = new RetryBudget(0.1, 2, 100, TimeUnit.MINUTES.toNanos(10), new Ticker() {
+            @Override
+            public long read() {
+                return now.get();
+            }
+        });
+        budget.tryWithdraw(ROUTE);
+        budget.tryWithdraw(ROUTE);
+        assertEquals(0, budget.getTokens(ROUTE), 0);
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(11));
+
+        assertEquals(2, budget.getTokens(ROUTE), 0);
+    }
+
+    @Test
+    public void should_bound_number_of_routes() {
+        RetryBudget budget = new RetryBudget(0.1, 2, 100, TimeUnit.MINUTES.toNanos(10), Ticker.systemTicker());
+        for (int i = 0; i < 1000; i++) {
+            budget.deposit("http://10.0.0." + i + ":8080");
+        }
+
+        assertTrue(budget.getRouteCount() <= 100);
+    }
+}
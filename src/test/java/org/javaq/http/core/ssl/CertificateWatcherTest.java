@@ -0,0 +1,91 @@
+package org.javaq.http.core.ssl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CertificateWatcherTest {
+
+    private static final long QUIET_PERIOD = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Semaphore reloads = new Semaphore(0);
+
+    private Path keyFile;
+
+    private Path certsDir;
+
+    private CertificateWatcher watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        keyFile = folder.newFile("client.keystore").toPath();
+        certsDir = folder.newFolder("certs").toPath();
+        watcher = new CertificateWatcher(Arrays.asList(keyFile, certsDir), QUIET_PERIOD, new Runnable() {
+            @Override
+            public void run() {
+                reloads.release();
+            }
+        });
+        watcher.start();
+    }
+
+    @After
+    public void tearDown() {
+        watcher.shutdown();
+    }
+
+    @Test
+    public void should_call_back_once_after_watched_file_changes() throws Exception {
+        write(keyFile, "v1");
+        write(keyFile, "v2");
+
+        assertTrue(reloads.tryAcquire(5, TimeUnit.SECONDS));
+        assertFalse(reloads.tryAcquire(QUIET_PERIOD * 3, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void should_watch_certificate_directory_recursively() throws Exception {
+        Path subDir = Files.createDirectory(certsDir.resolve("ca"));
+        assertTrue(reloads.tryAcquire(5, TimeUnit.SECONDS));
+
+        write(subDir.resolve("ca.pem"), "cert");
+
+        assertTrue(reloads.tryAcquire(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void should_ignore_unwatched_sibling_file() throws Exception {
+        write(new File(folder.getRoot(), "other.txt").toPath(), "other");
+
+        assertFalse(reloads.tryAcquire(QUIET_PERIOD * 5, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void should_stop_watching_after_shutdown() throws Exception {
+        watcher.shutdown();
+
+        write(keyFile, "v1");
+
+        assertFalse(reloads.tryAcquire(QUIET_PERIOD * 5, TimeUnit.MILLISECONDS));
+    }
+
+    private static void write(Path file, String content) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
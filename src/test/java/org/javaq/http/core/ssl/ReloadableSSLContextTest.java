@@ -0,0 +1,114 @@
+package org.javaq.http.core.ssl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.KeyStore;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ReloadableSSLContextTest {
+
+    private static final String PASSWORD = "123456";
+
+    private SSLServerSocket server;
+
+    @Before
+    public void setUp() throws Exception {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(loadKeyStore(), PASSWORD.toCharArray());
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(kmf.getKeyManagers(), null, null);
+        server = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!server.isClosed()) {
+                    try {
+                        Socket socket = server.accept();
+                        try {
+                            ((SSLSocket) socket).startHandshake();
+                        } catch (IOException e) {
+                            // 客户端不信任服务端证书
+                        } finally {
+                            socket.close();
+                        }
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void should_create_new_sockets_from_swapped_context() throws Exception {
+        KeyStore empty = KeyStore.getInstance("JKS");
+        empty.load(null, null);
+        ReloadableSSLContext reloadable = new ReloadableSSLContext(clientContext(empty));
+        // 连接工厂在创建时缓存SSLSocketFactory，替换后沿用同一个实例
+        SSLSocketFactory socketFactory = reloadable.getSocketFactory();
+        try {
+            handshake(socketFactory);
+            fail();
+        } catch (SSLException e) {
+            // 初始SSLContext不信任服务端证书
+        }
+
+        SSLContext trusting = clientContext(loadKeyStore());
+        reloadable.swap(trusting);
+
+        assertSame(trusting, reloadable.current());
+        assertSame(trusting.getClientSessionContext(), reloadable.getClientSessionContext());
+        handshake(socketFactory);
+    }
+
+    private void handshake(SSLSocketFactory socketFactory) throws IOException {
+        SSLSocket socket = (SSLSocket) socketFactory.createSocket(server.getInetAddress(), server.getLocalPort());
+        try {
+            socket.startHandshake();
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static SSLContext clientContext(KeyStore trustStore) throws Exception {
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, tmf.getTrustManagers(), null);
+        return context;
+    }
+
+    private static KeyStore loadKeyStore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = new FileInputStream("ssl/kamd.keystore");
+        try {
+            keyStore.load(in, PASSWORD.toCharArray());
+        } finally {
+            in.close();
+        }
+        return keyStore;
+    }
+}
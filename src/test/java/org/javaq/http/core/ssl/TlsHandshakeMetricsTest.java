@@ -0,0 +1,151 @@
+package org.javaq.http.core.ssl;
+
+import com.google.common.io.BaseEncoding;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.javaq.http.HttpClient;
+import org.javaq.http.core.SSLContextFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 两个客户端共用同一个SSLContext：第一个客户端完整握手，第二个客户端新建连接时复用其会话
+ */
+public class TlsHandshakeMetricsTest {
+
+    private static final String PASSWORD = "123456";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpsServer server;
+
+    private SSLContextFactory sslContextFactory;
+
+    private HttpClient httpClient;
+
+    private HttpClient anotherHttpClient;
+
+    private String url;
+
+    @Before
+    public void setUp() throws Exception {
+        KeyStore keyStore = loadKeyStore();
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD.toCharArray());
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(kmf.getKeyManagers(), null, null);
+        server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        server.createContext("/ok", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] bytes = "ok".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(bytes);
+                out.close();
+            }
+        });
+        server.start();
+        url = "https://127.0.0.1:" + server.getAddress().getPort() + "/ok";
+
+        File certsDir = folder.newFolder("certs");
+        for (String alias : Collections.list(keyStore.aliases())) {
+            writePem(new File(certsDir, alias + ".pem"), keyStore.getCertificate(alias));
+        }
+        sslContextFactory = new SSLContextFactory();
+        sslContextFactory.setTrustedCertsPath(certsDir.getPath());
+        sslContextFactory.setTrustedStorePassword("changeit");
+        sslContextFactory.setSessionCacheSize(16);
+        sslContextFactory.setSessionTimeout(300);
+        sslContextFactory.afterPropertiesSet();
+
+        httpClient = httpClient();
+        anotherHttpClient = httpClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClient.destroy();
+        anotherHttpClient.destroy();
+        sslContextFactory.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void should_apply_session_cache_settings() {
+        assertEquals(16, sslContextFactory.getSslContext().getClientSessionContext().getSessionCacheSize());
+        assertEquals(300, sslContextFactory.getSslContext().getClientSessionContext().getSessionTimeout());
+    }
+
+    @Test
+    public void should_count_full_and_resumed_handshakes_of_sync_requests() throws Exception {
+        assertEquals("ok", httpClient.get(url));
+        assertEquals("ok", anotherHttpClient.get(url));
+
+        assertEquals(1, httpClient.getTlsHandshakeMetrics().getFullHandshakes());
+        assertEquals(0, httpClient.getTlsHandshakeMetrics().getResumedHandshakes());
+        assertEquals(0, anotherHttpClient.getTlsHandshakeMetrics().getFullHandshakes());
+        assertEquals(1, anotherHttpClient.getTlsHandshakeMetrics().getResumedHandshakes());
+    }
+
+    @Test
+    public void should_count_full_and_resumed_handshakes_of_async_requests() throws Exception {
+        assertEquals("ok", httpClient.getAsync(url).get(5, TimeUnit.SECONDS));
+        assertEquals("ok", anotherHttpClient.getAsync(url).get(5, TimeUnit.SECONDS));
+
+        assertEquals(1, httpClient.getTlsHandshakeMetrics().getFullHandshakes());
+        assertEquals(0, httpClient.getTlsHandshakeMetrics().getResumedHandshakes());
+        assertEquals(0, anotherHttpClient.getTlsHandshakeMetrics().getFullHandshakes());
+        assertEquals(1, anotherHttpClient.getTlsHandshakeMetrics().getResumedHandshakes());
+    }
+
+    private HttpClient httpClient() throws Exception {
+        HttpClient httpClient = new HttpClient();
+        httpClient.setJmxEnabled(false);
+        httpClient.setSslContextFactory(sslContextFactory);
+        httpClient.afterPropertiesSet();
+        return httpClient;
+    }
+
+    private static KeyStore loadKeyStore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = new FileInputStream("ssl/kamd.keystore");
+        try {
+            keyStore.load(in, PASSWORD.toCharArray());
+        } finally {
+            in.close();
+        }
+        return keyStore;
+    }
+
+    private static void writePem(File file, Certificate certificate) throws Exception {
+        String pem = "-----BEGIN CERTIFICATE-----\n"
+                + BaseEncoding.base64().withSeparator("\n", 64).encode(certificate.getEncoded())
+                + "\n-----END CERTIFICATE-----\n";
+        Files.write(file.toPath(), pem.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,165 @@
+package org.javaq.http.core.ssl;
+
+import com.google.common.io.BaseEncoding;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrustStoreLoaderTest {
+
+    private static final String PASSWORD = "123456";
+
+    private static final File DEFAULT_TRUSTED_FILE = new File("ssl/kamd.keystore");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Certificate> certificates = new ArrayList<>();
+
+    private File certsDir;
+
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = new FileInputStream(DEFAULT_TRUSTED_FILE);
+        try {
+            keyStore.load(in, PASSWORD.toCharArray());
+        } finally {
+            in.close();
+        }
+        for (String alias : Collections.list(keyStore.aliases())) {
+            certificates.add(keyStore.getCertificate(alias));
+        }
+        certsDir = folder.newFolder("certs");
+        cacheDir = new File(folder.getRoot(), "cache");
+        writePem(new File(certsDir, "a.pem"), certificates.get(0));
+    }
+
+    @Test
+    public void should_build_and_write_cache_on_miss() throws Exception {
+        TrustStoreLoader loader = loader();
+        KeyStore keyStore = loader.load();
+
+        assertFalse(loader.isLoadedFromCache());
+        assertTrue(loader.isContentHashed());
+        assertEquals(certificates.get(0), keyStore.getCertificate(new File(certsDir, "a.pem").getPath()));
+        assertEquals(1, cacheFiles().size());
+        assertTrue(new File(cacheDir, "truststore.index").isFile());
+    }
+
+    @Test
+    public void should_load_cache_without_hashing_when_files_unchanged() throws Exception {
+        loader().load();
+
+        TrustStoreLoader loader = loader();
+        KeyStore keyStore = loader.load();
+
+        assertTrue(loader.isLoadedFromCache());
+        assertFalse(loader.isContentHashed());
+        assertEquals(certificates.get(0), keyStore.getCertificate(new File(certsDir, "a.pem").getPath()));
+    }
+
+    @Test
+    public void should_reuse_cache_after_hashing_when_only_mtime_changed() throws Exception {
+        loader().load();
+        File file = new File(certsDir, "a.pem");
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() + 60000));
+
+        TrustStoreLoader loader = loader();
+        loader.load();
+
+        assertTrue(loader.isContentHashed());
+        assertTrue(loader.isLoadedFromCache());
+    }
+
+    @Test
+    public void should_rebuild_when_certificate_changed() throws Exception {
+        loader().load();
+        File file = new File(certsDir, "a.pem");
+        long lastModified = file.lastModified();
+        writePem(file, certificates.get(1));
+        file.setLastModified(lastModified);
+
+        TrustStoreLoader loader = loader();
+        KeyStore keyStore = loader.load();
+
+        assertFalse(loader.isLoadedFromCache());
+        assertEquals(certificates.get(1), keyStore.getCertificate(file.getPath()));
+        assertEquals(1, cacheFiles().size());
+    }
+
+    @Test
+    public void should_rebuild_when_cache_file_is_corrupt() throws Exception {
+        loader().load();
+        Path cacheFile = cacheFiles().get(0);
+        Files.write(cacheFile, "corrupt".getBytes(StandardCharsets.UTF_8));
+
+        TrustStoreLoader loader = loader();
+        KeyStore keyStore = loader.load();
+
+        assertFalse(loader.isLoadedFromCache());
+        assertEquals(certificates.get(0), keyStore.getCertificate(new File(certsDir, "a.pem").getPath()));
+
+        TrustStoreLoader reloaded = loader();
+        reloaded.load();
+        assertTrue(reloaded.isLoadedFromCache());
+        assertFalse(reloaded.isContentHashed());
+    }
+
+    @Test
+    public void should_ignore_corrupt_index_file() throws Exception {
+        loader().load();
+        Files.write(new File(cacheDir, "truststore.index").toPath(), "corrupt".getBytes(StandardCharsets.UTF_8));
+
+        TrustStoreLoader loader = loader();
+        loader.load();
+
+        assertTrue(loader.isContentHashed());
+        assertTrue(loader.isLoadedFromCache());
+    }
+
+    private TrustStoreLoader loader() {
+        return new TrustStoreLoader(DEFAULT_TRUSTED_FILE, certsDir.getPath(), PASSWORD, cacheDir.getPath());
+    }
+
+    private List<Path> cacheFiles() throws Exception {
+        List<Path> files = new ArrayList<>();
+        DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir.toPath(), "truststore-*.keystore");
+        try {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        } finally {
+            stream.close();
+        }
+        return files;
+    }
+
+    private static void writePem(File file, Certificate certificate) throws Exception {
+        String pem = "-----BEGIN CERTIFICATE-----\n"
+                + BaseEncoding.base64().withSeparator("\n", 64).encode(certificate.getEncoded())
+                + "\n-----END CERTIFICATE-----\n";
+        Files.write(file.toPath(), pem.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,39 @@
+package org.javaq.http.core.ssl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrustedHostMatcherTest {
+
+    @Test
+    public void should_match_exact_hosts_ignoring_case() {
+        TrustedHostMatcher matcher = new TrustedHostMatcher("127.0.0.1, api.partner.com;Pay.Example.com");
+
+        assertTrue(matcher.matches("127.0.0.1"));
+        assertTrue(matcher.matches("API.partner.com"));
+        assertTrue(matcher.matches("pay.example.com."));
+    }
+
+    @Test
+    public void should_not_match_substring_of_trusted_hosts() {
+        TrustedHostMatcher matcher = new TrustedHostMatcher("api.partner.com,127.0.0.1");
+
+        assertFalse(matcher.matches("partner.com"));
+        assertFalse(matcher.matches("0.0.1"));
+        assertFalse(matcher.matches("i.partner.com"));
+        assertFalse(matcher.matches(""));
+    }
+
+    @Test
+    public void should_match_subdomains_of_wildcard_suffix() {
+        TrustedHostMatcher matcher = new TrustedHostMatcher("*.partner.com");
+
+        assertTrue(matcher.matches("api.partner.com"));
+        assertTrue(matcher.matches("a.b.partner.com"));
+        assertFalse(matcher.matches("partner.com"));
+        assertFalse(matcher.matches("evilpartner.com"));
+        assertFalse(matcher.matches("partner.com.evil.com"));
+    }
+}